@@ -0,0 +1,61 @@
+package cn.sustech.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Datasets of a given size for the benchmarks, grown from {@code resources/local.csv}.
+ *
+ * <p>Copy {@code c} of a row gets the course number suffix {@code -c}, and its title the
+ * prefix {@code c % 100}, so the number of distinct course numbers grows with the rows while
+ * institutions, subjects and instructors keep the distribution of the sample.</p>
+ */
+final class BenchmarkData {
+    
+    private BenchmarkData() {
+    }
+    
+    /**.
+     *
+     * <p>Writes a dataset of {@code rows} data rows to a temporary file.</p>
+     *
+     * @param rows the number of data rows
+     * @return the path of the dataset, deleted on exit
+     * @throws IOException if the sample cannot be read or the dataset written
+     */
+    static Path write(int rows) throws IOException {
+        List<String> sample = Files.readAllLines(Paths.get("resources", "local.csv"),
+            StandardCharsets.UTF_8);
+        Path path = Files.createTempFile("courses-" + rows + "-", ".csv");
+        path.toFile().deleteOnExit();
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write(sample.get(0));
+            out.newLine();
+            int perCopy = sample.size() - 1;
+            for (int i = 0; i < rows; i++) {
+                int copy = i / perCopy;
+                String line = sample.get(1 + i % perCopy);
+                out.write(copy == 0 ? line : rename(line, copy));
+                out.newLine();
+            }
+        }
+        return path;
+    }
+    
+    private static String rename(String line, int copy) {
+        // institution, course number and launch date are never quoted
+        int numberEnd = line.indexOf(',', line.indexOf(',') + 1);
+        int titleStart = line.indexOf(',', numberEnd + 1) + 1;
+        if (line.charAt(titleStart) == '"') {
+            titleStart++;
+        }
+        return line.substring(0, numberEnd) + "-" + copy
+            + line.substring(numberEnd, titleStart) + (copy % 100) + " "
+            + line.substring(titleStart);
+    }
+}
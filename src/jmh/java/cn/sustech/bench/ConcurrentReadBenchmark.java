@@ -0,0 +1,83 @@
+package cn.sustech.bench;
+
+import cn.sustech.ConcurrentCoursesAnalyzer;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read throughput of a shared {@link ConcurrentCoursesAnalyzer}, optionally while the data is
+ * reloaded over and over in the background. Run with several thread counts to see the reads
+ * scale, for example {@code ConcurrentReadBenchmark -t 1} then {@code -t 4} and {@code -t 8}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ConcurrentReadBenchmark {
+    
+    private static final String[] SUBJECTS = {"computer", "science", "history", "health", "a"};
+    
+    @Param({"100000"})
+    public int rows;
+    
+    @Param({"false", "true"})
+    public boolean reloading;
+    
+    private ConcurrentCoursesAnalyzer analyzer;
+    
+    private volatile boolean running;
+    
+    private Thread reloader;
+    
+    @Setup
+    public void setUp() throws IOException {
+        String dataset = BenchmarkData.write(rows).toString();
+        analyzer = new ConcurrentCoursesAnalyzer(dataset);
+        if (reloading) {
+            running = true;
+            reloader = new Thread(() -> {
+                while (running) {
+                    analyzer.reload(dataset).join();
+                }
+            });
+            reloader.start();
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        if (reloader != null) {
+            reloader.join();
+        }
+        analyzer.close();
+    }
+    
+    @Benchmark
+    public List<String> mixedReads() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (random.nextInt(3)) {
+            case 0 -> analyzer.getCourses(1 + random.nextInt(20), "participants");
+            case 1 -> analyzer.searchCourses(SUBJECTS[random.nextInt(SUBJECTS.length)],
+                random.nextInt(50), 100 + random.nextInt(900));
+            default -> analyzer.recommendCourses(15 + random.nextInt(50), random.nextInt(2),
+                random.nextInt(2));
+        };
+    }
+}
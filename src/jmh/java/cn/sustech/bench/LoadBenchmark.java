@@ -0,0 +1,51 @@
+package cn.sustech.bench;
+
+import cn.sustech.OnlineCoursesAnalyzer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to load a dataset into an analyzer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoadBenchmark {
+    
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+    
+    private String dataset;
+    
+    @Setup
+    public void setUp() throws IOException {
+        Path path = BenchmarkData.write(rows);
+        dataset = path.toString();
+    }
+    
+    @Benchmark
+    public OnlineCoursesAnalyzer load() throws IOException {
+        return new OnlineCoursesAnalyzer(dataset);
+    }
+    
+    @Benchmark
+    public OnlineCoursesAnalyzer loadParallel() throws IOException {
+        return new OnlineCoursesAnalyzer(dataset, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,81 @@
+package cn.sustech.bench;
+
+import cn.sustech.AnalyzerMetrics;
+import cn.sustech.OnlineCoursesAnalyzer;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Steady-state cost of each query once the analyzer has built its indexes, with the
+ * {@link AnalyzerMetrics} off and on to show what the instrumentation costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QueryBenchmark {
+    
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+    
+    @Param({"false", "true"})
+    public boolean metrics;
+    
+    private OnlineCoursesAnalyzer analyzer;
+    
+    @Setup
+    public void setUp() throws IOException {
+        AnalyzerMetrics.setEnabled(metrics);
+        analyzer = new OnlineCoursesAnalyzer(BenchmarkData.write(rows).toString());
+    }
+    
+    @Benchmark
+    public Map<String, Integer> ptcpCountByInst() {
+        return analyzer.getPtcpCountByInst();
+    }
+    
+    @Benchmark
+    public Map<String, Integer> ptcpCountByInstAndSubject() {
+        return analyzer.getPtcpCountByInstAndSubject();
+    }
+    
+    @Benchmark
+    public Map<String, List<List<String>>> courseListOfInstructor() {
+        return analyzer.getCourseListOfInstructor();
+    }
+    
+    @Benchmark
+    public List<String> coursesByHours() {
+        return analyzer.getCourses(10, "hours");
+    }
+    
+    @Benchmark
+    public List<String> coursesByParticipants() {
+        return analyzer.getCourses(10, "participants");
+    }
+    
+    @Benchmark
+    public List<String> searchCourses() {
+        return analyzer.searchCourses("computer", 20.0, 700);
+    }
+    
+    @Benchmark
+    public List<String> recommendCourses() {
+        return analyzer.recommendCourses(25, 1, 1);
+    }
+}
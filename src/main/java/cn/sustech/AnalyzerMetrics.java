@@ -0,0 +1,321 @@
+package cn.sustech;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide instrumentation of the analyzers: a latency histogram and allocation total of
+ * every {@link Operation}, and a set of {@link Counter}s.
+ *
+ * <p>Metrics are off unless the system property {@code cn.sustech.metrics} is true or
+ * {@link #setEnabled(boolean)} turns them on. While off, an instrumented call costs one read
+ * of a volatile flag and records nothing. While on, a call is timed with
+ * {@link System#nanoTime()} and the bytes its thread allocates are measured, and a call
+ * slower than the slow query threshold is also committed as a {@link SlowQueryEvent} to the
+ * flight recorder when that event is enabled.</p>
+ *
+ * <p>The metrics can be read as a {@link MetricsSnapshot} through {@link #snapshot()} or over
+ * JMX once {@link #registerMBean()} has been called.</p>
+ */
+public final class AnalyzerMetrics {
+    
+    /** The JMX object name of the metrics MBean. */
+    public static final String OBJECT_NAME = "cn.sustech:type=AnalyzerMetrics";
+    
+    /**
+     * The timed operations.
+     */
+    public enum Operation {
+        /** Parsing a csv file into a table. */
+        LOAD_PARSE,
+        /** Computing the participant totals of a loaded table. */
+        LOAD_AGGREGATE,
+        /** Reading a binary snapshot. */
+        SNAPSHOT_READ,
+        /** Writing a binary snapshot. */
+        SNAPSHOT_WRITE,
+        /** Appending a csv file to a loaded table. */
+        APPEND,
+        /** {@link OnlineCoursesAnalyzer#getPtcpCountByInst()}. */
+        PTCP_COUNT_BY_INST,
+        /** {@link OnlineCoursesAnalyzer#getPtcpCountByInstAndSubject()}. */
+        PTCP_COUNT_BY_INST_AND_SUBJECT,
+        /** {@link OnlineCoursesAnalyzer#getCourseListOfInstructor()}. */
+        COURSE_LIST_OF_INSTRUCTOR,
+        /** {@link OnlineCoursesAnalyzer#getCourses(int, CourseMetric)}. */
+        GET_COURSES,
+        /** {@link OnlineCoursesAnalyzer#searchCourses(String, double, double)}. */
+        SEARCH_COURSES,
+        /** Both forms of {@code OnlineCoursesAnalyzer#recommendCourses}. */
+        RECOMMEND_COURSES,
+        /** Building the instructor index. */
+        INSTRUCTOR_INDEX_BUILD,
+        /** Building the recommendation profiles. */
+        COURSE_PROFILES_BUILD,
+        /** Building the search index. */
+        SEARCH_INDEX_BUILD
+    }
+    
+    /**
+     * The counters.
+     */
+    public enum Counter {
+        /** Rows parsed from csv files. */
+        ROWS_LOADED,
+        /** Rows visited by queries that compute a result. */
+        ROWS_SCANNED,
+        /** Query results served by a {@link QueryCache}. */
+        CACHE_HITS,
+        /** Query results a {@link QueryCache} had to compute. */
+        CACHE_MISSES,
+        /** Query results a {@link QueryCache} evicted. */
+        CACHE_EVICTIONS
+    }
+    
+    private static final Operation[] OPERATIONS = Operation.values();
+    
+    private static final LatencyHistogram[] LATENCIES = new LatencyHistogram[OPERATIONS.length];
+    
+    private static final LongAdder[] ALLOCATED = new LongAdder[OPERATIONS.length];
+    
+    private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+    
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    
+    private static final boolean ALLOCATION_SUPPORTED =
+        THREADS instanceof com.sun.management.ThreadMXBean threads
+            && threads.isThreadAllocatedMemorySupported();
+    
+    private static volatile boolean enabled = Boolean.getBoolean("cn.sustech.metrics");
+    
+    private static volatile long slowQueryNanos = Duration.ofMillis(100).toNanos();
+    
+    static {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            LATENCIES[i] = new LatencyHistogram();
+            ALLOCATED[i] = new LongAdder();
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new LongAdder();
+        }
+    }
+    
+    private AnalyzerMetrics() {
+    }
+    
+    /**.
+     *
+     * <p>Whether metrics are recorded.</p>
+     *
+     * @return true if metrics are on
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**.
+     *
+     * <p>Turns recording on or off. Calls already running when metrics are turned on are not
+     * recorded.</p>
+     *
+     * @param on true to record metrics
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+    
+    /**.
+     *
+     * <p>Sets the latency from which a call is committed as a {@link SlowQueryEvent}.</p>
+     *
+     * @param threshold the threshold, 100ms by default
+     */
+    public static void setSlowQueryThreshold(Duration threshold) {
+        slowQueryNanos = threshold.toNanos();
+    }
+    
+    /**.
+     *
+     * <p>The latency from which a call is committed as a {@link SlowQueryEvent}.</p>
+     *
+     * @return the threshold
+     */
+    public static Duration slowQueryThreshold() {
+        return Duration.ofNanos(slowQueryNanos);
+    }
+    
+    /**.
+     *
+     * <p>Copies the current metrics.</p>
+     *
+     * @return the snapshot
+     */
+    public static MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.OperationStats> operations = new ArrayList<>(OPERATIONS.length);
+        for (Operation operation : OPERATIONS) {
+            operations.add(new MetricsSnapshot.OperationStats(operation.name(),
+                LATENCIES[operation.ordinal()].counts(), ALLOCATED[operation.ordinal()].sum()));
+        }
+        Map<String, Long> counters = new LinkedHashMap<>();
+        for (Counter counter : Counter.values()) {
+            counters.put(counter.name(), COUNTERS[counter.ordinal()].sum());
+        }
+        return new MetricsSnapshot(operations, counters);
+    }
+    
+    /**.
+     *
+     * <p>Clears every histogram and counter.</p>
+     */
+    public static void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            LATENCIES[i].reset();
+            ALLOCATED[i].reset();
+        }
+        for (LongAdder counter : COUNTERS) {
+            counter.reset();
+        }
+    }
+    
+    /**.
+     *
+     * <p>Registers the metrics MBean with the platform MBean server under
+     * {@value #OBJECT_NAME}, unless it is already registered.</p>
+     *
+     * @throws IllegalStateException if the MBean cannot be registered
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered before
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Starts timing a call.</p>
+     *
+     * @param operation the operation called
+     * @return the span to pass to {@link #stop(Span)}, or null while metrics are off
+     */
+    static Span start(Operation operation) {
+        if (!enabled) {
+            return null;
+        }
+        return new Span(operation, System.nanoTime(), allocatedBytes());
+    }
+    
+    /**.
+     *
+     * <p>Records a call started by {@link #start(Operation)}.</p>
+     *
+     * @param span the span, or null
+     */
+    static void stop(Span span) {
+        if (span == null) {
+            return;
+        }
+        long latency = System.nanoTime() - span.startNanos;
+        long allocated = allocatedBytes() - span.startAllocated;
+        int op = span.operation.ordinal();
+        LATENCIES[op].record(latency);
+        ALLOCATED[op].add(allocated);
+        if (latency >= slowQueryNanos) {
+            SlowQueryEvent event = new SlowQueryEvent();
+            if (event.isEnabled()) {
+                event.operation = span.operation.name();
+                event.latency = latency;
+                event.allocatedBytes = allocated;
+                event.commit();
+            }
+        }
+    }
+    
+    /**.
+     *
+     * <p>Adds to a counter while metrics are on.</p>
+     *
+     * @param counter the counter
+     * @param delta the amount to add
+     */
+    static void count(Counter counter, long delta) {
+        if (enabled) {
+            COUNTERS[counter.ordinal()].add(delta);
+        }
+    }
+    
+    private static long allocatedBytes() {
+        return ALLOCATION_SUPPORTED
+            ? ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes() : 0;
+    }
+    
+    /**
+     * A call being timed.
+     */
+    static final class Span {
+        
+        private final Operation operation;
+        private final long startNanos;
+        private final long startAllocated;
+        
+        private Span(Operation operation, long startNanos, long startAllocated) {
+            this.operation = operation;
+            this.startNanos = startNanos;
+            this.startAllocated = startAllocated;
+        }
+    }
+    
+    /**
+     * The MBean, delegating to the static metrics.
+     */
+    private static final class Bean implements AnalyzerMetricsMXBean {
+        
+        @Override
+        public boolean isEnabled() {
+            return AnalyzerMetrics.isEnabled();
+        }
+        
+        @Override
+        public void setEnabled(boolean enabled) {
+            AnalyzerMetrics.setEnabled(enabled);
+        }
+        
+        @Override
+        public long getSlowQueryThresholdMillis() {
+            return slowQueryThreshold().toMillis();
+        }
+        
+        @Override
+        public void setSlowQueryThresholdMillis(long millis) {
+            setSlowQueryThreshold(Duration.ofMillis(millis));
+        }
+        
+        @Override
+        public List<MetricsSnapshot.OperationStats> getOperations() {
+            return snapshot().getOperations();
+        }
+        
+        @Override
+        public Map<String, Long> getCounters() {
+            return snapshot().getCounters();
+        }
+        
+        @Override
+        public void reset() {
+            AnalyzerMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package cn.sustech;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of the {@link AnalyzerMetrics}, registered by
+ * {@link AnalyzerMetrics#registerMBean()} as {@value AnalyzerMetrics#OBJECT_NAME}.
+ */
+public interface AnalyzerMetricsMXBean {
+    
+    boolean isEnabled();
+    
+    void setEnabled(boolean enabled);
+    
+    long getSlowQueryThresholdMillis();
+    
+    void setSlowQueryThresholdMillis(long millis);
+    
+    List<MetricsSnapshot.OperationStats> getOperations();
+    
+    Map<String, Long> getCounters();
+    
+    void reset();
+}
@@ -0,0 +1,333 @@
+package cn.sustech;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * An analyzer that many threads can query while its data is reloaded in the background.
+ *
+ * <p>Queries run against an immutable snapshot: a fully loaded {@link OnlineCoursesAnalyzer}
+ * whose indexes are all built before it is published. The current snapshot is held in an
+ * {@link AtomicReference}. A reload builds a new snapshot on a background thread and
+ * publishes it with one atomic swap, so a query never blocks and never sees a half-loaded
+ * dataset. A query that started before the swap finishes on the old snapshot.</p>
+ *
+ * <p>Query results are cached in a {@link QueryCache} keyed by the snapshot version, so a
+ * swap invalidates them; the participant-count and instructor maps are cached on the snapshot
+ * itself. Cached results are shared between callers and are unmodifiable.</p>
+ */
+public final class ConcurrentCoursesAnalyzer implements AutoCloseable {
+    
+    /**.
+     *
+     * <p>The number of results the default query cache holds.</p>
+     */
+    static final int DEFAULT_CACHED_RESULTS = 10_000;
+    
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    
+    private final QueryCache queryCache;
+    
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "courses-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    /**.
+     *
+     * <p>Creates a concurrent analyzer that starts with the given data, building its indexes
+     * on the calling thread, and caches up to {@value #DEFAULT_CACHED_RESULTS} results.</p>
+     *
+     * @param initial the first snapshot; it must not be modified afterwards
+     */
+    public ConcurrentCoursesAnalyzer(OnlineCoursesAnalyzer initial) {
+        this(initial, QueryCache.ofEntries(DEFAULT_CACHED_RESULTS));
+    }
+    
+    /**.
+     *
+     * <p>Creates a concurrent analyzer that starts with the given data, building its indexes
+     * on the calling thread.</p>
+     *
+     * @param initial the first snapshot; it must not be modified afterwards
+     * @param queryCache the cache of query results, used by no other analyzer, or null to
+     *     not cache them
+     */
+    public ConcurrentCoursesAnalyzer(OnlineCoursesAnalyzer initial, QueryCache queryCache) {
+        this.queryCache = queryCache;
+        initial.buildIndexes();
+        current.set(new Snapshot(initial, 0));
+    }
+    
+    /**.
+     *
+     * <p>Creates a concurrent analyzer that starts with the data file.</p>
+     *
+     * @param datasetPath the data file (.csv file) path
+     * @throws IOException exception thrown when reading file
+     */
+    public ConcurrentCoursesAnalyzer(String datasetPath) throws IOException {
+        this(new OnlineCoursesAnalyzer(datasetPath));
+    }
+    
+    /**.
+     *
+     * <p>Loads the data file in the background and publishes it once it is fully loaded.
+     * Reloads run one at a time in the order they are requested.</p>
+     *
+     * @param datasetPath the data file (.csv file) path
+     * @return completes with the version of the published snapshot, or exceptionally with
+     *     an {@link UncheckedIOException} if the file cannot be read, in which case the
+     *     current snapshot stays
+     */
+    public CompletableFuture<Long> reload(String datasetPath) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return publish(new OnlineCoursesAnalyzer(datasetPath));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, reloader);
+    }
+    
+    /**.
+     *
+     * <p>Builds the indexes of an analyzer on the calling thread and then publishes it as the
+     * current snapshot.</p>
+     *
+     * @param analyzer the new snapshot; it must not be modified afterwards
+     * @return the version of the published snapshot
+     */
+    public long publish(OnlineCoursesAnalyzer analyzer) {
+        analyzer.buildIndexes();
+        Snapshot previous;
+        Snapshot next;
+        do {
+            previous = current.get();
+            next = new Snapshot(analyzer, previous.version + 1);
+        } while (!current.compareAndSet(previous, next));
+        return next.version;
+    }
+    
+    /**.
+     *
+     * <p>The version of the current snapshot, 0 for the initial data and one more for each
+     * snapshot published since.</p>
+     *
+     * @return the current version
+     */
+    public long version() {
+        return current.get().version;
+    }
+    
+    /**.
+     *
+     * <p>The cache of query results, whose counters show how well it works.</p>
+     *
+     * @return the cache, or null if results are not cached
+     */
+    public QueryCache queryCache() {
+        return queryCache;
+    }
+    
+    /**.
+     *
+     * <p>The current snapshot. Queries made on it directly always see the same data.</p>
+     *
+     * @return the analyzer of the current snapshot
+     */
+    public OnlineCoursesAnalyzer snapshot() {
+        return current.get().analyzer;
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#getPtcpCountByInst()}.</p>
+     *
+     * @return the map of participants count by Institution
+     */
+    public Map<String, Integer> getPtcpCountByInst() {
+        Snapshot snapshot = current.get();
+        Map<String, Integer> result = snapshot.ptcpCountByInst;
+        if (result == null) {
+            result = Collections.unmodifiableMap(snapshot.analyzer.getPtcpCountByInst());
+            snapshot.ptcpCountByInst = result;
+        }
+        return result;
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#getPtcpCountByInstAndSubject()}.</p>
+     *
+     * @return the map of participants count by Institution and course subject
+     */
+    public Map<String, Integer> getPtcpCountByInstAndSubject() {
+        Snapshot snapshot = current.get();
+        Map<String, Integer> result = snapshot.ptcpCountByInstAndSubject;
+        if (result == null) {
+            result = Collections.unmodifiableMap(
+                snapshot.analyzer.getPtcpCountByInstAndSubject());
+            snapshot.ptcpCountByInstAndSubject = result;
+        }
+        return result;
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#getCourseListOfInstructor()}.</p>
+     *
+     * @return the map of course list by instructor
+     */
+    public Map<String, List<List<String>>> getCourseListOfInstructor() {
+        Snapshot snapshot = current.get();
+        Map<String, List<List<String>>> result = snapshot.courseListOfInstructor;
+        if (result == null) {
+            Map<String, List<List<String>>> copy = new LinkedHashMap<>();
+            snapshot.analyzer.getCourseListOfInstructor().forEach((name, lists) -> {
+                List<List<String>> unmodifiable = new ArrayList<>(lists.size());
+                for (List<String> list : lists) {
+                    unmodifiable.add(List.copyOf(list));
+                }
+                copy.put(name, List.copyOf(unmodifiable));
+            });
+            result = Collections.unmodifiableMap(copy);
+            snapshot.courseListOfInstructor = result;
+        }
+        return result;
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#forEachCourseListOfInstructor}. The courses are
+     * visited on the current snapshot without building the map.</p>
+     *
+     * @param action receives each instructor with the titles of their courses
+     */
+    public void forEachCourseListOfInstructor(InstructorCourses action) {
+        current.get().analyzer.forEachCourseListOfInstructor(action);
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#getCourses(int, String)}.</p>
+     *
+     * @param topK the top K courses
+     * @param by the given criterion
+     * @return the list of top courses
+     */
+    public List<String> getCourses(int topK, String by) {
+        return getCourses(topK, CourseMetric.of(by));
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#getCourses(int, CourseMetric)}.</p>
+     *
+     * @param topK the top K courses
+     * @param metric the metric to rank by
+     * @return the list of top courses
+     */
+    public List<String> getCourses(int topK, CourseMetric metric) {
+        return cached(List.of("getCourses", topK, metric),
+            analyzer -> analyzer.getCourses(topK, metric));
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#searchCourses(String, double, double)}.</p>
+     *
+     * @param courseSubject the course subject
+     * @param percentAudited the percent of audited
+     * @param totalCourseHours the total course hours
+     * @return the list of courses
+     */
+    public List<String> searchCourses(String courseSubject, double percentAudited,
+        double totalCourseHours) {
+        return cached(List.of("searchCourses", courseSubject, percentAudited, totalCourseHours),
+            analyzer -> analyzer.searchCourses(courseSubject, percentAudited, totalCourseHours));
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#searchCourses(String, double, double, LocalDate,
+     * LocalDate)}.</p>
+     *
+     * @param courseSubject the course subject
+     * @param percentAudited the percent of audited
+     * @param totalCourseHours the total course hours
+     * @param launchedFrom the earliest launch date, inclusive, or null for no lower bound
+     * @param launchedTo the latest launch date, inclusive, or null for no upper bound
+     * @return the list of courses
+     */
+    public List<String> searchCourses(String courseSubject, double percentAudited,
+        double totalCourseHours, LocalDate launchedFrom, LocalDate launchedTo) {
+        return cached(Arrays.asList("searchCourses", courseSubject, percentAudited,
+                totalCourseHours, launchedFrom, launchedTo),
+            analyzer -> analyzer.searchCourses(courseSubject, percentAudited, totalCourseHours,
+                launchedFrom, launchedTo));
+    }
+    
+    /**.
+     *
+     * <p>See {@link OnlineCoursesAnalyzer#recommendCourses(int, int, int)}.</p>
+     *
+     * @param age age of the user
+     * @param gender 0-female, 1-male
+     * @param isBachelorOrHigher 0-Not get bachelor degree, 1- Bachelor degree or higher
+     * @return the list of recommends 10 courses
+     */
+    public List<String> recommendCourses(int age, int gender, int isBachelorOrHigher) {
+        return cached(List.of("recommendCourses", age, gender, isBachelorOrHigher),
+            analyzer -> analyzer.recommendCourses(age, gender, isBachelorOrHigher));
+    }
+    
+    private List<String> cached(List<Object> key,
+        Function<OnlineCoursesAnalyzer, List<String>> query) {
+        Snapshot snapshot = current.get();
+        if (queryCache == null) {
+            return List.copyOf(query.apply(snapshot.analyzer));
+        }
+        return queryCache.get(snapshot.version, key, () -> query.apply(snapshot.analyzer));
+    }
+    
+    /**.
+     *
+     * <p>Stops the reload thread. Queries keep working on the current snapshot.</p>
+     */
+    @Override
+    public void close() {
+        reloader.shutdownNow();
+    }
+    
+    /**
+     * A published analyzer with the results cached for it.
+     */
+    private static final class Snapshot {
+        
+        private final OnlineCoursesAnalyzer analyzer;
+        private final long version;
+        // computed at most a few times by racing readers, then read without locking
+        private volatile Map<String, Integer> ptcpCountByInst;
+        private volatile Map<String, Integer> ptcpCountByInstAndSubject;
+        private volatile Map<String, List<List<String>>> courseListOfInstructor;
+        
+        Snapshot(OnlineCoursesAnalyzer analyzer, long version) {
+            this.analyzer = analyzer;
+            this.version = version;
+        }
+    }
+}
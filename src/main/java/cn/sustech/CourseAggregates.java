@@ -0,0 +1,337 @@
+package cn.sustech;
+
+import static cn.sustech.CourseColumn.COURSE_SUBJECTS;
+import static cn.sustech.CourseColumn.INSTITUTION;
+import static cn.sustech.CourseColumn.PARTICIPANTS;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Participant totals kept up to date as rows are added to a {@link CourseTable}.
+ *
+ * <p>Added rows are summed per (institution code, subject code) pair by a {@link GroupBy}, and
+ * the sums folded into totals kept per institution code in an {@code int[]} and per pair in a
+ * {@link LongIntHashMap}, so adding rows costs O(rows added). The
+ * sorted views returned by the participant-count queries are built from the totals on first
+ * read after a change and then reused, so reading them costs O(result size).</p>
+ */
+final class CourseAggregates {
+    
+    private static final GroupBy PARTICIPANTS_BY_INSTITUTION_SUBJECT =
+        GroupBy.by(INSTITUTION, COURSE_SUBJECTS).sum(PARTICIPANTS);
+    
+    private int[] participantsByInstitution;
+    
+    private final LongIntHashMap participantsByInstitutionSubject;
+    
+    private volatile Map<String, Integer> institutionView;
+    
+    private volatile Map<String, Integer> institutionSubjectView;
+    
+    CourseAggregates() {
+        this(new int[16], new LongIntHashMap());
+    }
+    
+    CourseAggregates(int[] participantsByInstitution,
+        LongIntHashMap participantsByInstitutionSubject) {
+        this.participantsByInstitution = participantsByInstitution;
+        this.participantsByInstitutionSubject = participantsByInstitutionSubject;
+    }
+    
+    /**.
+     *
+     * <p>Computes the aggregates of a table in one pass.</p>
+     *
+     * @param table the loaded table
+     * @return the aggregates of the table
+     */
+    static CourseAggregates of(CourseTable table) {
+        return of(table, null);
+    }
+    
+    /**.
+     *
+     * <p>Computes the aggregates of a table, grouping large tables in partitions on the
+     * pool.</p>
+     *
+     * @param table the loaded table
+     * @param pool the pool to group on, or null to group sequentially
+     * @return the aggregates of the table
+     */
+    static CourseAggregates of(CourseTable table, ForkJoinPool pool) {
+        CourseAggregates aggregates = new CourseAggregates();
+        aggregates.add(table, 0, table.size(), pool);
+        return aggregates;
+    }
+    
+    /**.
+     *
+     * <p>Adds a range of rows of the table to the totals.</p>
+     *
+     * @param table the table the aggregates belong to
+     * @param from the first row to add
+     * @param to the row after the last row to add
+     */
+    void add(CourseTable table, int from, int to) {
+        add(table, from, to, null);
+    }
+    
+    private void add(CourseTable table, int from, int to, ForkJoinPool pool) {
+        int institutions = table.dictionary(INSTITUTION).size();
+        if (participantsByInstitution.length < institutions) {
+            participantsByInstitution = Arrays.copyOf(participantsByInstitution,
+                Math.max(institutions, participantsByInstitution.length * 2));
+        }
+        GroupBy.Groups sums = PARTICIPANTS_BY_INSTITUTION_SUBJECT.run(table, from, to, pool);
+        for (int group = 0; group < sums.size(); group++) {
+            int institution = sums.code(0, group);
+            int participants = (int) sums.longValue(0, group);
+            participantsByInstitution[institution] += participants;
+            participantsByInstitutionSubject.addTo(
+                ((long) institution << 32) | sums.code(1, group), participants);
+        }
+        institutionView = null;
+        institutionSubjectView = null;
+    }
+    
+    /**.
+     *
+     * <p>The total participants of each institution, indexed by institution code. The array
+     * may be longer than the number of institutions.</p>
+     *
+     * @return the participant sums
+     */
+    int[] participantsByInstitution() {
+        return participantsByInstitution;
+    }
+    
+    /**.
+     *
+     * <p>The total participants of each (institution code, subject code) pair, keyed by
+     * {@code institution << 32 | subject}.</p>
+     *
+     * @return the participant sums
+     */
+    LongIntHashMap participantsByInstitutionSubject() {
+        return participantsByInstitutionSubject;
+    }
+    
+    /**.
+     *
+     * <p>The institution totals in institution order.</p>
+     *
+     * @param table the table the aggregates belong to
+     * @return the shared view, which callers must copy before modifying
+     */
+    Map<String, Integer> institutionView(CourseTable table) {
+        Map<String, Integer> view = institutionView;
+        if (view == null) {
+            StringDictionary institutions = table.dictionary(INSTITUTION);
+            int[] rank = institutions.ranks();
+            int[] byRank = new int[rank.length];
+            for (int code = 0; code < rank.length; code++) {
+                byRank[rank[code]] = code;
+            }
+            view = new LinkedHashMap<>();
+            for (int code : byRank) {
+                view.put(institutions.value(code), participantsByInstitution[code]);
+            }
+            institutionView = view;
+        }
+        return view;
+    }
+    
+    /**.
+     *
+     * <p>The institution-subject totals keyed by "institution-subject", by descending total
+     * then key.</p>
+     *
+     * @param table the table the aggregates belong to
+     * @return the shared view, which callers must copy before modifying
+     */
+    Map<String, Integer> institutionSubjectView(CourseTable table) {
+        Map<String, Integer> view = institutionSubjectView;
+        if (view == null) {
+            StringDictionary institutions = table.dictionary(INSTITUTION);
+            StringDictionary subjects = table.dictionary(COURSE_SUBJECTS);
+            LongIntHashMap sums = participantsByInstitutionSubject;
+            Map<String, Integer> byKey = new HashMap<>();
+            for (int i = 0; i < sums.size(); i++) {
+                long key = sums.keyAt(i);
+                byKey.merge(institutions.value((int) (key >>> 32)) + "-"
+                    + subjects.value((int) key), sums.valueAt(i), Integer::sum);
+            }
+            view = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : byKey.entrySet().stream()
+                .sorted(Comparator.comparing(Map.Entry<String, Integer>::getValue).reversed()
+                    .thenComparing(Map.Entry::getKey))
+                .toList()) {
+                view.put(entry.getKey(), entry.getValue());
+            }
+            institutionSubjectView = view;
+        }
+        return view;
+    }
+    
+    /**.
+     *
+     * <p>Passes the institution totals to the action in the order of
+     * {@link #institutionView}, without building the view.</p>
+     *
+     * @param table the table the aggregates belong to
+     * @param action receives each institution and its total
+     */
+    void forEachInstitution(CourseTable table, ObjIntConsumer<String> action) {
+        StringDictionary institutions = table.dictionary(INSTITUTION);
+        int[] rank = institutions.ranks();
+        int[] byRank = new int[rank.length];
+        for (int code = 0; code < rank.length; code++) {
+            byRank[rank[code]] = code;
+        }
+        for (int code : byRank) {
+            action.accept(institutions.value(code), participantsByInstitution[code]);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Passes the institution-subject totals to the action in the order of
+     * {@link #institutionSubjectView}, without building the view: the pairs are sorted as
+     * their joined keys would be, but by comparing the parts in place, and pairs whose joined
+     * keys are equal are summed as in the view. Only one key string is built per entry, right
+     * before it is passed on, and the entries are sorted as int indexes and packed longs, not
+     * as boxed objects.</p>
+     *
+     * @param table the table the aggregates belong to
+     * @param action receives each "institution-subject" key and its total
+     */
+    void forEachInstitutionSubject(CourseTable table, ObjIntConsumer<String> action) {
+        StringDictionary institutions = table.dictionary(INSTITUTION);
+        StringDictionary subjects = table.dictionary(COURSE_SUBJECTS);
+        LongIntHashMap sums = participantsByInstitutionSubject;
+        int[] entries = new int[sums.size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = i;
+        }
+        IntBinaryOperator byKey = (a, b) -> compareKeys(institutions, subjects,
+            sums.keyAt(a), sums.keyAt(b));
+        sort(entries, byKey);
+        int[] totals = new int[entries.length];
+        int count = 0;
+        for (int entry : entries) {
+            if (count > 0 && byKey.applyAsInt(entries[count - 1], entry) == 0) {
+                totals[count - 1] += sums.valueAt(entry);
+            } else {
+                totals[count] = sums.valueAt(entry);
+                entries[count++] = entry;
+            }
+        }
+        // descending total, then key order, which is the order of the merged entries
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = (long) ~totals[i] << 32 | i;
+        }
+        Arrays.sort(order);
+        for (long packed : order) {
+            int i = (int) packed;
+            long key = sums.keyAt(entries[i]);
+            action.accept(institutions.value((int) (key >>> 32)) + "-"
+                + subjects.value((int) key), totals[i]);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Sorts int values by a comparator with a stable bottom-up merge sort, using one
+     * scratch array instead of boxing every value.</p>
+     */
+    private static void sort(int[] values, IntBinaryOperator comparator) {
+        int length = values.length;
+        int[] from = values;
+        int[] to = new int[length];
+        for (long width = 1; width < length; width *= 2) {
+            for (long low = 0; low < length; low += 2 * width) {
+                int i = (int) low;
+                int middle = (int) Math.min(low + width, length);
+                int high = (int) Math.min(low + 2 * width, length);
+                int j = middle;
+                int k = i;
+                while (i < middle && j < high) {
+                    to[k++] = comparator.applyAsInt(from[j], from[i]) < 0 ? from[j++] : from[i++];
+                }
+                System.arraycopy(from, i, to, k, middle - i);
+                System.arraycopy(from, j, to, k + middle - i, high - j);
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != values) {
+            System.arraycopy(from, 0, values, 0, length);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Compares the "institution-subject" keys of two pairs as strings, without joining
+     * them.</p>
+     */
+    private static int compareKeys(StringDictionary institutions, StringDictionary subjects,
+        long a, long b) {
+        String institutionA = institutions.value((int) (a >>> 32));
+        String subjectA = subjects.value((int) a);
+        String institutionB = institutions.value((int) (b >>> 32));
+        String subjectB = subjects.value((int) b);
+        if (institutionA.equals(institutionB)) {
+            return subjectA.compareTo(subjectB);
+        }
+        int lengthA = institutionA.length() + 1 + subjectA.length();
+        int lengthB = institutionB.length() + 1 + subjectB.length();
+        for (int i = 0; i < Math.min(lengthA, lengthB); i++) {
+            char charA = keyChar(institutionA, subjectA, i);
+            char charB = keyChar(institutionB, subjectB, i);
+            if (charA != charB) {
+                return charA - charB;
+            }
+        }
+        return lengthA - lengthB;
+    }
+    
+    private static char keyChar(String institution, String subject, int index) {
+        if (index < institution.length()) {
+            return institution.charAt(index);
+        }
+        if (index == institution.length()) {
+            return '-';
+        }
+        return subject.charAt(index - institution.length() - 1);
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes of the totals and of the sorted views built so far.</p>
+     *
+     * @return the estimated bytes
+     */
+    long retainedBytes() {
+        long bytes = MemoryFootprint.array(participantsByInstitution.length, 4)
+            + participantsByInstitutionSubject.retainedBytes();
+        for (Map<String, Integer> view : Arrays.asList(institutionView, institutionSubjectView)) {
+            if (view != null) {
+                // a linked hash map node and a boxed total per entry, and the bucket array
+                bytes += 56L * view.size() + MemoryFootprint.array(2L * view.size(), 4);
+                for (String key : view.keySet()) {
+                    bytes += QueryCache.weigh(key);
+                }
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,81 @@
+package cn.sustech;
+
+/**
+ * The 23 columns of the course dataset, in file order.
+ */
+enum CourseColumn {
+    
+    /** online course holders. */
+    INSTITUTION(Type.TEXT),
+    /** the unique id of each course. */
+    COURSE_NUMBER(Type.TEXT),
+    /** the launch date of each course. */
+    LAUNCH_DATE(Type.DATE),
+    /** the title of each course. */
+    COURSE_TITLE(Type.TEXT),
+    /** the instructors of each course. */
+    INSTRUCTORS(Type.TEXT),
+    /** the subject of each course. */
+    COURSE_SUBJECTS(Type.TEXT),
+    /** the last time of each course. */
+    YEAR(Type.INT),
+    /** the honor code. */
+    HONOR_CODE(Type.INT),
+    /** the number of participants who have accessed the course. */
+    PARTICIPANTS(Type.INT),
+    /** the number of participants who have audited more than 50% of the course. */
+    AUDITED(Type.INT),
+    /** total number of votes. */
+    CERTIFIED(Type.INT),
+    /** the percent of the audited. */
+    AUDITED_RATE(Type.DOUBLE),
+    /** the percent of the certified. */
+    CERTIFIED_RATE(Type.DOUBLE),
+    /** the percent of the certified with accessing the course more than 50%. */
+    CERTIFIED_RATE_5(Type.DOUBLE),
+    /** the percent of playing video. */
+    PLAYED_VIDEO_RATE(Type.DOUBLE),
+    /** the percent of posting in forum. */
+    POSTED_IN_FORUM_RATE(Type.DOUBLE),
+    /** the percent of grade higher than zero. */
+    GHT0_RATE(Type.DOUBLE),
+    /** total course hours(per 1000). */
+    TOTAL_COURSE_HOURS(Type.DOUBLE),
+    /** median hours for certification. */
+    MEDIAN_HOURS(Type.DOUBLE),
+    /** median age of the participants. */
+    MEDIAN_AGE(Type.DOUBLE),
+    /** the percent of the male. */
+    MALE_RATE(Type.DOUBLE),
+    /** the percent of the female. */
+    FEMALE_RATE(Type.DOUBLE),
+    /** the percent of bachelor's degree of higher. */
+    BACHELORS_RATE(Type.DOUBLE);
+    
+    /**
+     * How a column is stored: dictionary codes, epoch days, ints or doubles.
+     */
+    enum Type {
+        TEXT, DATE, INT, DOUBLE
+    }
+    
+    private final Type type;
+    
+    CourseColumn(Type type) {
+        this.type = type;
+    }
+    
+    Type type() {
+        return type;
+    }
+    
+    /**.
+     *
+     * <p>The index of the column in a csv record.</p>
+     *
+     * @return the field index
+     */
+    int field() {
+        return ordinal();
+    }
+}
@@ -0,0 +1,345 @@
+package cn.sustech;
+
+import static cn.sustech.CourseColumn.COURSE_NUMBER;
+import static cn.sustech.CourseColumn.LAUNCH_DATE;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+
+/**
+ * The data files of an analyzer loaded from a directory or a glob, and what was loaded from
+ * each of them.
+ *
+ * <p>Every file is remembered by its size, its modification time and the CRC-32 of the last
+ * {@value #TAIL} bytes loaded from it. A {@link #delta} lists the files again and loads only
+ * the new ones and the ones that grew: a file that grew or was touched must still hold the
+ * same last bytes where its loaded part ended, and only the byte range after them is mapped
+ * and parsed, so a refresh costs the size of the new records, not of the file. A file may end
+ * without a line break; the bytes it gains must then start with the line break that ends the
+ * record loaded last. Rows cannot be taken back out of the loaded structures, so a file that
+ * was removed, truncated or rewritten fails the delta. Only the last {@value #TAIL} loaded
+ * bytes are compared: an edit before them, or one that keeps the size and modification time,
+ * is not noticed. The files of one load are parsed in parallel, one task per file, each file
+ * in line-aligned chunks by {@link ParallelCsvLoader}, and merged in file name order.</p>
+ *
+ * <p>Unless the policy keeps all rows, the (course number, launch date) key of every loaded
+ * row is kept in a hash map, the course number as its code in the analyzer's table, with the
+ * file it was loaded from. The rows of each file are checked against the keys of the other
+ * files merged before them, so the rows a file gains are never duplicates of its own.</p>
+ */
+final class CourseFiles {
+    
+    private static final int TAIL = 1 << 16;
+    
+    // the owner of keys loaded from several files, or appended from elsewhere
+    private static final int SHARED = -1;
+    
+    private final Path directory;
+    
+    private final String glob;
+    
+    private final DuplicatePolicy policy;
+    
+    private final ForkJoinPool pool;
+    
+    private final Map<Path, FileState> loaded = new HashMap<>();
+    
+    private int nextId;
+    
+    // key to the id of the file it was loaded from, plus one, or SHARED
+    private final LongIntHashMap keys = new LongIntHashMap();
+    
+    // the owner of each row of the last delta, until the rows are appended
+    private int[] pendingOwners = new int[0];
+    
+    private CourseFiles(Path directory, String glob, DuplicatePolicy policy, ForkJoinPool pool) {
+        this.directory = directory;
+        this.glob = glob;
+        this.policy = policy;
+        this.pool = pool;
+    }
+    
+    /**.
+     *
+     * <p>Tracks the csv files of a directory, or the files matching a glob in their name, such
+     * as {@code data/*.csv}.</p>
+     *
+     * @param pattern a directory, or a path whose file name is a glob
+     * @param policy what to do with rows loaded from several files
+     * @param pool the pool the files are loaded on
+     * @return the file set, with nothing loaded yet
+     */
+    static CourseFiles of(String pattern, DuplicatePolicy policy, ForkJoinPool pool) {
+        Path path = Path.of(pattern);
+        if (Files.isDirectory(path)) {
+            return new CourseFiles(path, "*.csv", policy, pool);
+        }
+        Path parent = path.getParent();
+        return new CourseFiles(parent == null ? Path.of("") : parent,
+            path.getFileName().toString(), policy, pool);
+    }
+    
+    /**.
+     *
+     * <p>Loads the rows of the files that are new or grew since the last delta, and records
+     * them as loaded. On failure nothing is recorded, so the next delta retries the same
+     * files.</p>
+     *
+     * @param courses the analyzer's table, which the rows will be appended to
+     * @return the rows to append, in file name order
+     * @throws IOException if a file cannot be read, was removed, truncated or rewritten, or
+     *     holds a duplicate under {@link DuplicatePolicy#REJECT}
+     */
+    CourseTable delta(CourseTable courses) throws IOException {
+        List<Path> paths = list();
+        for (Path path : loaded.keySet()) {
+            if (!paths.contains(path)) {
+                throw new IOException(path + " was removed after it was loaded");
+            }
+        }
+        List<Callable<FileRows>> tasks = new ArrayList<>();
+        for (Path path : paths) {
+            FileState previous = loaded.get(path);
+            if (previous == null || previous.size != Files.size(path)
+                || previous.modified != Files.getLastModifiedTime(path).toMillis()) {
+                int id = previous == null ? nextId++ : previous.id;
+                tasks.add(() -> read(path, previous, id));
+            }
+        }
+        List<FileRows> files = ParallelCsvLoader.invokeAll(pool, tasks);
+        
+        CourseTable rows = new CourseTable();
+        LongIntHashMap rowKeys = new LongIntHashMap();
+        int[] owners = new int[16];
+        for (FileRows file : files) {
+            int owner = file.state.id + 1;
+            int[] kept = new int[file.rows.size()];
+            int count = 0;
+            int[] launchDate = file.rows.ints(LAUNCH_DATE);
+            for (int row = 0; row < file.rows.size(); row++) {
+                String number = file.rows.text(COURSE_NUMBER, row);
+                // rows of the same delta are staged per file, so rowKeys holds other files only
+                if (policy != DuplicatePolicy.KEEP_ALL
+                    && (isDuplicate(keys, courses, number, launchDate[row], owner)
+                    || isDuplicate(rowKeys, rows, number, launchDate[row], owner))) {
+                    if (policy == DuplicatePolicy.REJECT) {
+                        throw new IOException(file.path + ": course " + number + " launched "
+                            + LocalDate.ofEpochDay(launchDate[row]) + " is already loaded");
+                    }
+                    continue;
+                }
+                kept[count++] = row;
+            }
+            int from = rows.size();
+            rows.addAll(file.rows, Arrays.copyOf(kept, count));
+            addKeys(rowKeys, rows, from, owner);
+            if (owners.length < rows.size()) {
+                owners = Arrays.copyOf(owners, Math.max(rows.size(), owners.length * 2));
+            }
+            Arrays.fill(owners, from, rows.size(), owner);
+        }
+        for (FileRows file : files) {
+            loaded.put(file.path, file.state);
+        }
+        pendingOwners = Arrays.copyOf(owners, rows.size());
+        return rows;
+    }
+    
+    /**.
+     *
+     * <p>Records the keys of rows appended to the analyzer's table: the rows of the last
+     * delta with the files they came from, and any other rows as shared.</p>
+     *
+     * @param courses the analyzer's table
+     * @param from the first appended row
+     */
+    void appended(CourseTable courses, int from) {
+        if (policy == DuplicatePolicy.KEEP_ALL) {
+            return;
+        }
+        int[] owners = pendingOwners;
+        pendingOwners = new int[0];
+        boolean fromDelta = owners.length == courses.size() - from;
+        int[] number = courses.ints(COURSE_NUMBER);
+        int[] launchDate = courses.ints(LAUNCH_DATE);
+        for (int row = from; row < courses.size(); row++) {
+            int owner = fromDelta ? owners[row - from] : SHARED;
+            addKey(keys, key(number[row], launchDate[row]), owner);
+        }
+    }
+    
+    private List<Path> list() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    paths.add(path);
+                }
+            }
+        }
+        paths.sort(null);
+        return paths;
+    }
+    
+    /**.
+     *
+     * <p>Parses the records of a file after the bytes loaded before, or after the header
+     * line if nothing was.</p>
+     */
+    private FileRows read(Path path, FileState previous, int id) throws IOException {
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long from = 0;
+            if (previous != null) {
+                from = previous.size;
+                byte[] tail = from <= size ? tail(channel, from) : null;
+                if (tail == null || checksum(tail) != previous.checksum) {
+                    throw new IOException(path + " was rewritten after it was loaded");
+                }
+                if (from < size && tail.length > 0) {
+                    from = afterLineBreak(channel, from, tail[tail.length - 1], path);
+                }
+            }
+            List<CourseTable> chunks = ParallelCsvLoader.load(channel, from, size, from == 0,
+                pool, CourseTable::new, CourseTable::add);
+            CourseTable rows = new CourseTable(chunks.stream().mapToInt(CourseTable::size).sum());
+            chunks.forEach(rows::addAll);
+            return new FileRows(path,
+                new FileState(id, size, modified, checksum(tail(channel, size))), rows);
+        }
+    }
+    
+    /**.
+     *
+     * <p>The last {@value #TAIL} bytes before an offset, or fewer at the start of the file.</p>
+     */
+    private static byte[] tail(FileChannel channel, long end) throws IOException {
+        long start = Math.max(0, end - TAIL);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("end of file before " + end);
+            }
+        }
+        return buffer.array();
+    }
+    
+    /**.
+     *
+     * <p>Where the records after an offset start: at the offset if the byte before it ends a
+     * line, after the line break at the offset if not. Without one there, the record loaded
+     * last was extended, which cannot be taken back.</p>
+     */
+    private static long afterLineBreak(FileChannel channel, long offset, byte last, Path path)
+        throws IOException {
+        ByteBuffer next = ByteBuffer.allocate(2);
+        channel.read(next, offset);
+        byte first = next.position() > 0 ? next.get(0) : 0;
+        byte second = next.position() > 1 ? next.get(1) : 0;
+        if (last == '\n') {
+            return offset;
+        }
+        if (last == '\r') {
+            return first == '\n' ? offset + 1 : offset;
+        }
+        if (first == '\n') {
+            return offset + 1;
+        }
+        if (first == '\r') {
+            return second == '\n' ? offset + 2 : offset + 1;
+        }
+        throw new IOException(path + ": the last record was extended after it was loaded");
+    }
+    
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+    
+    /**.
+     *
+     * <p>Whether a key is held by a row that was not loaded from the given file.</p>
+     */
+    private static boolean isDuplicate(LongIntHashMap keys, CourseTable table, String number,
+        int launchDate, int owner) {
+        int code = table.dictionary(COURSE_NUMBER).codeOf(number);
+        if (code < 0) {
+            return false;
+        }
+        int holder = keys.get(key(code, launchDate), 0);
+        return holder != 0 && holder != owner;
+    }
+    
+    private static void addKeys(LongIntHashMap keys, CourseTable table, int from, int owner) {
+        int[] number = table.ints(COURSE_NUMBER);
+        int[] launchDate = table.ints(LAUNCH_DATE);
+        for (int row = from; row < table.size(); row++) {
+            addKey(keys, key(number[row], launchDate[row]), owner);
+        }
+    }
+    
+    private static void addKey(LongIntHashMap keys, long key, int owner) {
+        int holder = keys.get(key, 0);
+        if (holder == 0) {
+            keys.addTo(key, owner);
+        } else if (holder != owner && holder != SHARED) {
+            keys.addTo(key, SHARED - holder);
+        }
+    }
+    
+    private static long key(int code, int launchDate) {
+        return (long) code << 32 | launchDate & 0xffffffffL;
+    }
+    
+    /**
+     * What was loaded from a file: its id, size, modification time and the checksum of its
+     * last loaded bytes.
+     */
+    private static final class FileState {
+        
+        private final int id;
+        private final long size;
+        private final long modified;
+        private final long checksum;
+        
+        FileState(int id, long size, long modified, long checksum) {
+            this.id = id;
+            this.size = size;
+            this.modified = modified;
+            this.checksum = checksum;
+        }
+    }
+    
+    /**
+     * The rows read from a file, and the state to record once they are merged.
+     */
+    private static final class FileRows {
+        
+        private final Path path;
+        private final FileState state;
+        private final CourseTable rows;
+        
+        FileRows(Path path, FileState state, CourseTable rows) {
+            this.path = path;
+            this.state = state;
+            this.rows = rows;
+        }
+    }
+}
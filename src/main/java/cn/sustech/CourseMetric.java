@@ -0,0 +1,72 @@
+package cn.sustech;
+
+/**
+ * Criteria {@link OnlineCoursesAnalyzer#getCourses(int, CourseMetric)} can rank courses by.
+ * Courses are always ranked from the highest value to the lowest.
+ */
+public enum CourseMetric {
+    
+    /** Total Course Hours (Thousands). */
+    HOURS("hours", CourseColumn.TOTAL_COURSE_HOURS),
+    /** Participants (Course Content Accessed). */
+    PARTICIPANTS("participants", CourseColumn.PARTICIPANTS),
+    /** Audited (&gt; 50% Course Content Accessed). */
+    AUDITED("audited", CourseColumn.AUDITED),
+    /** Certified. */
+    CERTIFIED("certified", CourseColumn.CERTIFIED),
+    /** Median Hours for Certification. */
+    MEDIAN_HOURS("medianHours", CourseColumn.MEDIAN_HOURS),
+    /** % Audited. */
+    AUDITED_RATE("auditedRate", CourseColumn.AUDITED_RATE),
+    /** % Certified. */
+    CERTIFIED_RATE("certifiedRate", CourseColumn.CERTIFIED_RATE),
+    /** % Played Video. */
+    PLAYED_VIDEO_RATE("playedVideoRate", CourseColumn.PLAYED_VIDEO_RATE),
+    /** % Posted in Forum. */
+    POSTED_IN_FORUM_RATE("postedInForumRate", CourseColumn.POSTED_IN_FORUM_RATE),
+    /** % Grade Higher Than Zero. */
+    GRADE_HIGHER_THAN_ZERO_RATE("ght0Rate", CourseColumn.GHT0_RATE),
+    /** Median Age. */
+    MEDIAN_AGE("medianAge", CourseColumn.MEDIAN_AGE);
+    
+    private final String criterion;
+    
+    private final CourseColumn column;
+    
+    CourseMetric(String criterion, CourseColumn column) {
+        this.criterion = criterion;
+        this.column = column;
+    }
+    
+    /**.
+     *
+     * <p>The name of the metric as accepted by {@link #of(String)}.</p>
+     *
+     * @return the criterion string
+     */
+    public String criterion() {
+        return criterion;
+    }
+    
+    CourseColumn column() {
+        return column;
+    }
+    
+    /**.
+     *
+     * <p>Looks up a metric by its criterion string, such as "hours" or "participants". Any
+     * unknown criterion means {@link #PARTICIPANTS}, as it always has for
+     * {@link OnlineCoursesAnalyzer#getCourses(int, String)}.</p>
+     *
+     * @param criterion the criterion string
+     * @return the metric
+     */
+    public static CourseMetric of(String criterion) {
+        for (CourseMetric metric : values()) {
+            if (metric.criterion.equals(criterion)) {
+                return metric;
+            }
+        }
+        return PARTICIPANTS;
+    }
+}
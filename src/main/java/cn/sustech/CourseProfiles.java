@@ -0,0 +1,426 @@
+package cn.sustech;
+
+import static cn.sustech.CourseColumn.BACHELORS_RATE;
+import static cn.sustech.CourseColumn.COURSE_NUMBER;
+import static cn.sustech.CourseColumn.COURSE_TITLE;
+import static cn.sustech.CourseColumn.LAUNCH_DATE;
+import static cn.sustech.CourseColumn.MALE_RATE;
+import static cn.sustech.CourseColumn.MEDIAN_AGE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Demographic profile of every course number, used to score recommendations.
+ *
+ * <p>For each course number the average median age, male rate and bachelor's rate over all
+ * of its rows are computed once. The recommendation candidates are the distinct
+ * (course number, title) pairs of the rows launched on the latest launch date of their course
+ * number; they are stored grouped by title in title order, each with the profile of its
+ * course number laid out in parallel {@code double[]} arrays. A recommendation is one
+ * branch-free scoring loop over those arrays, written so the JIT can auto-vectorize it,
+ * followed by one pass that feeds a bounded top-K buffer.</p>
+ */
+final class CourseProfiles {
+    
+    private final int[] candidateTitles;
+    private final double[] candidateAge;
+    private final double[] candidateMaleRate;
+    private final double[] candidateBachelorsRate;
+    
+    private CourseProfiles(int[] candidateTitles, double[] candidateAge,
+        double[] candidateMaleRate, double[] candidateBachelorsRate) {
+        this.candidateTitles = candidateTitles;
+        this.candidateAge = candidateAge;
+        this.candidateMaleRate = candidateMaleRate;
+        this.candidateBachelorsRate = candidateBachelorsRate;
+    }
+    
+    /**.
+     *
+     * <p>Builds the profiles of a table in two passes over its rows.</p>
+     *
+     * @param table the course table
+     * @return the profiles
+     */
+    static CourseProfiles build(CourseTable table) {
+        int numbers = table.dictionary(COURSE_NUMBER).size();
+        int[] courseNumber = table.ints(COURSE_NUMBER);
+        int[] title = table.ints(COURSE_TITLE);
+        int[] launchDate = table.ints(LAUNCH_DATE);
+        double[] medianAge = table.doubles(MEDIAN_AGE);
+        double[] maleRate = table.doubles(MALE_RATE);
+        double[] bachelorsRate = table.doubles(BACHELORS_RATE);
+        
+        int[] latestLaunch = new int[numbers];
+        Arrays.fill(latestLaunch, Integer.MIN_VALUE);
+        DoubleSummaryStatistics[] ages = new DoubleSummaryStatistics[numbers];
+        DoubleSummaryStatistics[] males = new DoubleSummaryStatistics[numbers];
+        DoubleSummaryStatistics[] bachelors = new DoubleSummaryStatistics[numbers];
+        for (int code = 0; code < numbers; code++) {
+            ages[code] = new DoubleSummaryStatistics();
+            males[code] = new DoubleSummaryStatistics();
+            bachelors[code] = new DoubleSummaryStatistics();
+        }
+        for (int row = 0; row < table.size(); row++) {
+            int code = courseNumber[row];
+            latestLaunch[code] = Math.max(latestLaunch[code], launchDate[row]);
+            ages[code].accept(medianAge[row]);
+            males[code].accept(maleRate[row]);
+            bachelors[code].accept(bachelorsRate[row]);
+        }
+        double[] averageAge = new double[numbers];
+        double[] averageMaleRate = new double[numbers];
+        double[] averageBachelorsRate = new double[numbers];
+        for (int code = 0; code < numbers; code++) {
+            averageAge[code] = ages[code].getAverage();
+            averageMaleRate[code] = males[code].getAverage();
+            averageBachelorsRate[code] = bachelors[code].getAverage();
+        }
+        
+        int[] rank = table.dictionary(COURSE_TITLE).ranks();
+        long[] candidates = new long[table.size()];
+        int count = 0;
+        for (int row = 0; row < table.size(); row++) {
+            if (launchDate[row] == latestLaunch[courseNumber[row]]) {
+                candidates[count++] = ((long) rank[title[row]] << 32) | courseNumber[row];
+            }
+        }
+        Arrays.sort(candidates, 0, count);
+        int[] byRank = new int[rank.length];
+        for (int code = 0; code < rank.length; code++) {
+            byRank[rank[code]] = code;
+        }
+        int[] candidateTitles = new int[count];
+        double[] candidateAge = new double[count];
+        double[] candidateMaleRate = new double[count];
+        double[] candidateBachelorsRate = new double[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && candidates[i] == candidates[i - 1]) {
+                continue;
+            }
+            int code = (int) candidates[i];
+            candidateTitles[distinct] = byRank[(int) (candidates[i] >>> 32)];
+            candidateAge[distinct] = averageAge[code];
+            candidateMaleRate[distinct] = averageMaleRate[code];
+            candidateBachelorsRate[distinct] = averageBachelorsRate[code];
+            distinct++;
+        }
+        return new CourseProfiles(Arrays.copyOf(candidateTitles, distinct),
+            Arrays.copyOf(candidateAge, distinct), Arrays.copyOf(candidateMaleRate, distinct),
+            Arrays.copyOf(candidateBachelorsRate, distinct));
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes of the candidate arrays.</p>
+     *
+     * @return the estimated bytes
+     */
+    long retainedBytes() {
+        return MemoryFootprint.array(candidateTitles.length, 4)
+            + MemoryFootprint.array(candidateAge.length, 8)
+            + MemoryFootprint.array(candidateMaleRate.length, 8)
+            + MemoryFootprint.array(candidateBachelorsRate.length, 8);
+    }
+    
+    /**.
+     *
+     * <p>Scores every candidate for one user: the squared distance between the user and the
+     * profile of the candidate's course number, lower is more similar.</p>
+     *
+     * @param age age of the user
+     * @param gender 0-female, 1-male
+     * @param isBachelorOrHigher 0-Not get bachelor degree, 1- Bachelor degree or higher
+     * @param scores receives the score of each candidate
+     */
+    void score(int age, int gender, int isBachelorOrHigher, double[] scores) {
+        score(age, gender, isBachelorOrHigher, scores, 0, scores.length);
+    }
+    
+    private void score(int age, int gender, int isBachelorOrHigher, double[] scores, int from,
+        int to) {
+        double userAge = age;
+        double userMaleRate = gender * 100;
+        double userBachelorsRate = isBachelorOrHigher * 100;
+        for (int i = from; i < to; i++) {
+            double ageDistance = userAge - candidateAge[i];
+            double genderDistance = userMaleRate - candidateMaleRate[i];
+            double degreeDistance = userBachelorsRate - candidateBachelorsRate[i];
+            scores[i] = ageDistance * ageDistance + genderDistance * genderDistance
+                + degreeDistance * degreeDistance;
+        }
+    }
+    
+    /**.
+     *
+     * <p>Recommends the {@code k} titles with the lowest similarity value, ties broken by
+     * title. A title offered by several course numbers is scored by its best one.</p>
+     *
+     * @param age age of the user
+     * @param gender 0-female, 1-male
+     * @param isBachelorOrHigher 0-Not get bachelor degree, 1- Bachelor degree or higher
+     * @param k the number of titles
+     * @param titles the title dictionary the profiles were built with
+     * @return the recommended titles, best first
+     */
+    List<String> recommend(int age, int gender, int isBachelorOrHigher, int k,
+        StringDictionary titles) {
+        return recommend(age, gender, isBachelorOrHigher, k, titles, null, 0);
+    }
+    
+    /**.
+     *
+     * <p>Recommends as {@link #recommend(int, int, int, int, StringDictionary)} does, scoring
+     * at least two partitions of candidates on the pool. Partitions end at title boundaries,
+     * so each title's best score is found in one partition; each partition keeps its own top
+     * {@code k}, and the lists are merged lowest score first, the earlier partition first on
+     * equal scores, which is the title order a sequential pass breaks ties by.</p>
+     *
+     * @param age age of the user
+     * @param gender 0-female, 1-male
+     * @param isBachelorOrHigher 0-Not get bachelor degree, 1- Bachelor degree or higher
+     * @param k the number of titles
+     * @param titles the title dictionary the profiles were built with
+     * @param pool the pool to score on, or null to score sequentially
+     * @param minPartition the fewest candidates a partition is scored with
+     * @return the recommended titles, best first
+     */
+    List<String> recommend(int age, int gender, int isBachelorOrHigher, int k,
+        StringDictionary titles, ForkJoinPool pool, int minPartition) {
+        double[] scores = new double[candidateTitles.length];
+        Top top;
+        if (pool == null || scores.length < 2L * minPartition) {
+            score(age, gender, isBachelorOrHigher, scores);
+            top = top(scores, 0, scores.length, k);
+        } else {
+            top = pool.invoke(new RecommendTask(new int[] {age, gender, isBachelorOrHigher},
+                scores, 0, scores.length, k, minPartition));
+        }
+        return top.titles(titles);
+    }
+    
+    /**.
+     *
+     * <p>Recommends courses to many users at once, reusing one score buffer. The list of
+     * each user is exactly what {@link #recommend} returns for that user.</p>
+     *
+     * @param ages age of each user
+     * @param genders gender of each user
+     * @param degrees degree of each user
+     * @param k the number of titles per user
+     * @param titles the title dictionary the profiles were built with
+     * @return the recommended titles of each user
+     */
+    List<List<String>> recommend(int[] ages, int[] genders, int[] degrees, int k,
+        StringDictionary titles) {
+        return recommend(ages, genders, degrees, k, titles, null, 0);
+    }
+    
+    /**.
+     *
+     * <p>Recommends courses to many users at once, splitting the users into groups that are
+     * scored on the pool, each with its own score buffer, once the users times the candidates
+     * reach two partitions.</p>
+     *
+     * @param ages age of each user
+     * @param genders gender of each user
+     * @param degrees degree of each user
+     * @param k the number of titles per user
+     * @param titles the title dictionary the profiles were built with
+     * @param pool the pool to score on, or null to score sequentially
+     * @param minPartition the fewest scores a group of users computes
+     * @return the recommended titles of each user
+     */
+    List<List<String>> recommend(int[] ages, int[] genders, int[] degrees, int k,
+        StringDictionary titles, ForkJoinPool pool, int minPartition) {
+        String[][] result = new String[ages.length][];
+        long work = (long) ages.length * Math.max(1, candidateTitles.length);
+        if (pool == null || work < 2L * minPartition) {
+            recommendUsers(ages, genders, degrees, k, titles, result, 0, ages.length);
+        } else {
+            int usersPerTask = Math.max(1, minPartition / Math.max(1, candidateTitles.length));
+            pool.invoke(new UsersTask(ages, genders, degrees, k, titles, result, 0, ages.length,
+                usersPerTask));
+        }
+        List<List<String>> lists = new ArrayList<>(ages.length);
+        for (String[] list : result) {
+            lists.add(new ArrayList<>(Arrays.asList(list)));
+        }
+        return lists;
+    }
+    
+    private void recommendUsers(int[] ages, int[] genders, int[] degrees, int k,
+        StringDictionary titles, String[][] result, int from, int to) {
+        double[] scores = new double[candidateTitles.length];
+        for (int user = from; user < to; user++) {
+            score(ages[user], genders[user], degrees[user], scores);
+            result[user] = top(scores, 0, scores.length, k).titles(titles).toArray(new String[0]);
+        }
+    }
+    
+    /**.
+     *
+     * <p>The {@code k} best titles of the candidates in a range that starts and ends at title
+     * boundaries.</p>
+     */
+    private Top top(double[] scores, int from, int to, int k) {
+        Top top = new Top(k);
+        double[] topScores = top.scores;
+        int[] topTitles = top.titles;
+        int size = 0;
+        for (int i = from; i < to; ) {
+            int title = candidateTitles[i];
+            double best = scores[i];
+            for (i++; i < to && candidateTitles[i] == title; i++) {
+                best = Math.min(best, scores[i]);
+            }
+            // candidates come in title order, so an equal score never displaces a kept title
+            if (size == k && !(best < topScores[k - 1])) {
+                continue;
+            }
+            int at = size < k ? size++ : k - 1;
+            while (at > 0 && best < topScores[at - 1]) {
+                topScores[at] = topScores[at - 1];
+                topTitles[at] = topTitles[at - 1];
+                at--;
+            }
+            topScores[at] = best;
+            topTitles[at] = title;
+        }
+        top.size = size;
+        return top;
+    }
+    
+    /**
+     * The best titles found so far, lowest score first.
+     */
+    private static final class Top {
+        
+        private final double[] scores;
+        private final int[] titles;
+        private int size;
+        
+        Top(int k) {
+            scores = new double[k];
+            titles = new int[k];
+        }
+        
+        /**.
+         *
+         * <p>Merges the best titles of a later partition, keeping this partition's titles
+         * first on equal scores.</p>
+         */
+        Top merge(Top later) {
+            Top merged = new Top(scores.length);
+            int i = 0;
+            int j = 0;
+            while (merged.size < scores.length && (i < size || j < later.size)) {
+                boolean mine = j == later.size || i < size && !(later.scores[j] < scores[i]);
+                merged.scores[merged.size] = mine ? scores[i] : later.scores[j];
+                merged.titles[merged.size++] = mine ? titles[i++] : later.titles[j++];
+            }
+            return merged;
+        }
+        
+        List<String> titles(StringDictionary dictionary) {
+            List<String> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(dictionary.value(titles[i]));
+            }
+            return result;
+        }
+    }
+    
+    /**
+     * Scores a range of candidates, split in halves at title boundaries.
+     */
+    private final class RecommendTask extends RecursiveTask<Top> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] user;
+        private final double[] scores;
+        private final int from;
+        private final int to;
+        private final int k;
+        private final int minPartition;
+        
+        RecommendTask(int[] user, double[] scores, int from, int to, int k, int minPartition) {
+            this.user = user;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.minPartition = minPartition;
+        }
+        
+        @Override
+        protected Top compute() {
+            int middle = (from + to) >>> 1;
+            if (to - from >= 2L * minPartition && middle > from) {
+                while (middle < to && candidateTitles[middle] == candidateTitles[middle - 1]) {
+                    middle++;
+                }
+            }
+            if (to - from < 2L * minPartition || middle == from || middle == to) {
+                score(user[0], user[1], user[2], scores, from, to);
+                return top(scores, from, to, k);
+            }
+            RecommendTask left = new RecommendTask(user, scores, from, middle, k, minPartition);
+            left.fork();
+            Top right = new RecommendTask(user, scores, middle, to, k, minPartition).compute();
+            return left.join().merge(right);
+        }
+    }
+    
+    /**
+     * Recommends to a range of users, split in halves down to a group size.
+     */
+    private final class UsersTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] ages;
+        private final int[] genders;
+        private final int[] degrees;
+        private final int k;
+        private final StringDictionary titles;
+        private final String[][] result;
+        private final int from;
+        private final int to;
+        private final int usersPerTask;
+        
+        UsersTask(int[] ages, int[] genders, int[] degrees, int k, StringDictionary titles,
+            String[][] result, int from, int to, int usersPerTask) {
+            this.ages = ages;
+            this.genders = genders;
+            this.degrees = degrees;
+            this.k = k;
+            this.titles = titles;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+            this.usersPerTask = usersPerTask;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= usersPerTask) {
+                recommendUsers(ages, genders, degrees, k, titles, result, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new UsersTask(ages, genders, degrees, k, titles, result, from, middle,
+                    usersPerTask),
+                new UsersTask(ages, genders, degrees, k, titles, result, middle, to,
+                    usersPerTask));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package cn.sustech;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP server answering the analyzer queries as JSON, built on the JDK's
+ * {@code com.sun.net.httpserver}.
+ *
+ * <p>Endpoints, all GET:</p>
+ * <ul>
+ *   <li>{@code /ptcpCountByInst}</li>
+ *   <li>{@code /ptcpCountByInstAndSubject}</li>
+ *   <li>{@code /courseListOfInstructor}</li>
+ *   <li>{@code /courses?topK=10&by=hours}</li>
+ *   <li>{@code /search?subject=science&audited=20&hours=700&launchedFrom=2013-01-01}</li>
+ *   <li>{@code /recommend?age=25&gender=1&degree=1}</li>
+ * </ul>
+ *
+ * <p>Each request runs on its own virtual thread when the JVM supports them, and on a cached
+ * pool of platform threads otherwise. Responses are sent with chunked encoding and written as
+ * they are produced, so the instructor courses are streamed from the index entry by entry
+ * without building the map. Parameters are checked before the status is sent: bad ones get
+ * a 400 and unknown paths a 404, both with a JSON {@code error} message. A failure while a
+ * body is streamed closes the exchange, cutting the response short.</p>
+ */
+public final class CourseServer implements AutoCloseable {
+    
+    private final ConcurrentCoursesAnalyzer analyzer;
+    
+    private final HttpServer server;
+    
+    private final ExecutorService executor;
+    
+    private CourseServer(ConcurrentCoursesAnalyzer analyzer, HttpServer server,
+        ExecutorService executor) {
+        this.analyzer = analyzer;
+        this.server = server;
+        this.executor = executor;
+    }
+    
+    /**.
+     *
+     * <p>Starts a server for the analyzer.</p>
+     *
+     * @param analyzer the analyzer to query
+     * @param address the address to listen on; port 0 picks a free port
+     * @return the running server
+     * @throws IOException if the address cannot be bound
+     */
+    public static CourseServer start(ConcurrentCoursesAnalyzer analyzer,
+        InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        ExecutorService executor = newRequestExecutor();
+        CourseServer courseServer = new CourseServer(analyzer, server, executor);
+        server.createContext("/", courseServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        return courseServer;
+    }
+    
+    /**.
+     *
+     * <p>Starts a server from the command line: {@code <csv> [port]}, port 8080 by
+     * default.</p>
+     *
+     * @param args the data file and port
+     * @throws IOException if the data file cannot be read or the port bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: CourseServer <csv> [port]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        CourseServer server = start(new ConcurrentCoursesAnalyzer(args[0]),
+            new InetSocketAddress(port));
+        System.out.println("listening on " + server.address());
+    }
+    
+    /**.
+     *
+     * <p>One virtual thread per task where the JVM has them, looked up reflectively so the
+     * server also runs on JVMs without them.</p>
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "course-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**.
+     *
+     * <p>The address the server listens on.</p>
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+    
+    /**.
+     *
+     * <p>Stops accepting requests, waits up to a second for running ones, and stops the
+     * request threads.</p>
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                error(exchange, 405, "only GET is supported");
+                return;
+            }
+            Map<String, String> params = parameters(exchange.getRequestURI().getRawQuery());
+            switch (exchange.getRequestURI().getPath()) {
+                case "/ptcpCountByInst" -> {
+                    Map<String, Integer> result = analyzer.getPtcpCountByInst();
+                    respond(exchange, json -> json.counts(result));
+                }
+                case "/ptcpCountByInstAndSubject" -> {
+                    Map<String, Integer> result = analyzer.getPtcpCountByInstAndSubject();
+                    respond(exchange, json -> json.counts(result));
+                }
+                case "/courseListOfInstructor" -> respond(exchange, this::courseListOfInstructor);
+                case "/courses" -> {
+                    List<String> result = analyzer.getCourses(intParameter(params, "topK", 10),
+                        params.getOrDefault("by", "participants"));
+                    respond(exchange, json -> json.strings(result));
+                }
+                case "/search" -> {
+                    List<String> result = analyzer.searchCourses(
+                        params.getOrDefault("subject", ""), doubleParameter(params, "audited", 0),
+                        doubleParameter(params, "hours", Double.POSITIVE_INFINITY),
+                        dateParameter(params, "launchedFrom"), dateParameter(params, "launchedTo"));
+                    respond(exchange, json -> json.strings(result));
+                }
+                case "/recommend" -> {
+                    List<String> result = analyzer.recommendCourses(
+                        intParameter(params, "age", null), intParameter(params, "gender", null),
+                        intParameter(params, "degree", null));
+                    respond(exchange, json -> json.strings(result));
+                }
+                default -> error(exchange, 404, "no such endpoint");
+            }
+        } catch (IllegalArgumentException e) {
+            // once the status is sent, closing the exchange is all that is left
+            if (exchange.getResponseCode() < 0) {
+                error(exchange, 400, e.getMessage());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void courseListOfInstructor(JsonWriter json) throws IOException {
+        json.beginObject();
+        try {
+            analyzer.forEachCourseListOfInstructor((instructor, solo, coDeveloped) -> {
+                try {
+                    json.name(instructor).beginArray().strings(solo).strings(coDeveloped)
+                        .endArray();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.endObject();
+    }
+    
+    private static void respond(HttpExchange exchange, Body body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        JsonWriter json = new JsonWriter(new BufferedWriter(
+            new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 1 << 13));
+        body.write(json);
+        json.flush();
+    }
+    
+    private static void error(HttpExchange exchange, int status, String message)
+        throws IOException {
+        StringWriter text = new StringWriter();
+        new JsonWriter(text).beginObject().name("error").value(message).endObject();
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+    
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+    
+    private static int intParameter(Map<String, String> params, String name,
+        Integer defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            if (defaultValue == null) {
+                throw new IllegalArgumentException("missing parameter " + name);
+            }
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("parameter " + name + " is not an integer");
+        }
+    }
+    
+    private static double doubleParameter(Map<String, String> params, String name,
+        double defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("parameter " + name + " is not a number");
+        }
+    }
+    
+    private static LocalDate dateParameter(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("parameter " + name + " is not a yyyy-MM-dd date");
+        }
+    }
+    
+    /**
+     * Writes a response body.
+     */
+    private interface Body {
+        
+        void write(JsonWriter json) throws IOException;
+    }
+}
@@ -0,0 +1,355 @@
+package cn.sustech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary snapshot of a loaded {@link CourseTable} and its {@link CourseAggregates}.
+ *
+ * <p>Layout (big-endian): magic, format version, size and modification time of the source
+ * csv, row count, then every column in {@link CourseColumn} order (text columns as their
+ * dictionary followed by the codes), then the aggregates, and finally a CRC32 of all the
+ * preceding bytes. Snapshots are read back through memory-mapped windows, so loading one
+ * is a checksum pass plus bulk array copies instead of a csv parse.</p>
+ */
+final class CourseSnapshot {
+    
+    static final int VERSION = 3;
+    
+    private static final int MAGIC = 0x4F434153;
+    
+    private static final int BUFFER_SIZE = 1 << 20;
+    
+    private static final long MAX_WINDOW = 1L << 30;
+    
+    private static final CourseColumn[] COLUMNS = CourseColumn.values();
+    
+    private final CourseTable table;
+    private final CourseAggregates aggregates;
+    private final long sourceSize;
+    private final long sourceModified;
+    
+    private CourseSnapshot(CourseTable table, CourseAggregates aggregates, long sourceSize,
+        long sourceModified) {
+        this.table = table;
+        this.aggregates = aggregates;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+    }
+    
+    CourseTable table() {
+        return table;
+    }
+    
+    CourseAggregates aggregates() {
+        return aggregates;
+    }
+    
+    /**.
+     *
+     * <p>Checks that the csv the snapshot was built from has not changed since.</p>
+     *
+     * @param source the csv file
+     * @return whether the size and modification time of the file still match
+     * @throws IOException exception thrown when reading the file attributes
+     */
+    boolean isCurrent(Path source) throws IOException {
+        return Files.size(source) == sourceSize
+            && Files.getLastModifiedTime(source).toMillis() == sourceModified;
+    }
+    
+    /**.
+     *
+     * <p>Writes a snapshot. The bytes go to a temporary file that is then moved over
+     * {@code path}, so a concurrent reader never sees a half-written snapshot.</p>
+     *
+     * @param path the snapshot file
+     * @param table the table to write
+     * @param aggregates the aggregates of the table
+     * @param source the csv the table was loaded from, or null if there is none
+     * @throws IOException exception thrown when writing file
+     */
+    static void write(Path path, CourseTable table, CourseAggregates aggregates, Path source)
+        throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer out = new Writer(FileChannel.open(temp, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(source == null ? -1 : Files.size(source));
+            out.putLong(source == null ? -1 : Files.getLastModifiedTime(source).toMillis());
+            int size = table.size();
+            out.putInt(size);
+            for (CourseColumn column : COLUMNS) {
+                switch (column.type()) {
+                    case TEXT -> {
+                        StringDictionary dictionary = table.dictionary(column);
+                        out.putInt(dictionary.size());
+                        for (int code = 0; code < dictionary.size(); code++) {
+                            byte[] bytes = dictionary.value(code).getBytes(StandardCharsets.UTF_8);
+                            out.putInt(bytes.length);
+                            out.putBytes(bytes);
+                        }
+                        out.putInts(table.ints(column), size);
+                    }
+                    case INT, DATE -> out.putInts(table.ints(column), size);
+                    default -> out.putDoubles(table.doubles(column), size);
+                }
+            }
+            int institutions = table.dictionary(CourseColumn.INSTITUTION).size();
+            out.putInt(institutions);
+            out.putInts(aggregates.participantsByInstitution(), institutions);
+            LongIntHashMap pairs = aggregates.participantsByInstitutionSubject();
+            out.putInt(pairs.size());
+            for (int i = 0; i < pairs.size(); i++) {
+                out.putLong(pairs.keyAt(i));
+                out.putInt(pairs.valueAt(i));
+            }
+            out.finish();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**.
+     *
+     * <p>Reads a snapshot, verifying its format version and checksum.</p>
+     *
+     * @param path the snapshot file
+     * @return the snapshot
+     * @throws IOException exception thrown when the file cannot be read or is not a valid
+     *     snapshot of the current version
+     */
+    static CourseSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < 32) {
+                throw new IOException("truncated snapshot: " + path);
+            }
+            Reader in = new Reader(channel, 0, length - 8);
+            in.verify(channel.map(FileChannel.MapMode.READ_ONLY, length - 8, 8).getLong());
+            if (in.getInt() != MAGIC) {
+                throw new IOException("not a course snapshot: " + path);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version " + version + ": " + path);
+            }
+            long sourceSize = in.getLong();
+            long sourceModified = in.getLong();
+            int size = in.getInt();
+            StringDictionary[] dictionaries = new StringDictionary[COLUMNS.length];
+            int[][] ints = new int[COLUMNS.length][];
+            double[][] doubles = new double[COLUMNS.length][];
+            for (CourseColumn column : COLUMNS) {
+                int c = column.ordinal();
+                switch (column.type()) {
+                    case TEXT -> {
+                        String[] values = new String[in.getInt()];
+                        for (int code = 0; code < values.length; code++) {
+                            values[code] = new String(in.getBytes(in.getInt()),
+                                StandardCharsets.UTF_8);
+                        }
+                        dictionaries[c] = new StringDictionary(values);
+                        ints[c] = in.getInts(size);
+                    }
+                    case INT, DATE -> ints[c] = in.getInts(size);
+                    default -> doubles[c] = in.getDoubles(size);
+                }
+            }
+            int[] sums = in.getInts(in.getInt());
+            int pairCount = in.getInt();
+            LongIntHashMap pairs = new LongIntHashMap(pairCount);
+            for (int i = 0; i < pairCount; i++) {
+                pairs.addTo(in.getLong(), in.getInt());
+            }
+            return new CourseSnapshot(new CourseTable(size, dictionaries, ints, doubles),
+                new CourseAggregates(sums, pairs), sourceSize, sourceModified);
+        }
+    }
+    
+    /**
+     * Buffered channel writer that checksums everything it writes.
+     */
+    private static final class Writer implements AutoCloseable {
+        
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+        
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+        
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+        
+        void putBytes(byte[] bytes) throws IOException {
+            for (int off = 0; off < bytes.length; ) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - off);
+                buffer.put(bytes, off, n);
+                off += n;
+            }
+        }
+        
+        void putInts(int[] values, int count) throws IOException {
+            for (int off = 0; off < count; ) {
+                ensure(Integer.BYTES);
+                int n = Math.min(buffer.remaining() / Integer.BYTES, count - off);
+                buffer.asIntBuffer().put(values, off, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                off += n;
+            }
+        }
+        
+        void putDoubles(double[] values, int count) throws IOException {
+            for (int off = 0; off < count; ) {
+                ensure(Double.BYTES);
+                int n = Math.min(buffer.remaining() / Double.BYTES, count - off);
+                buffer.asDoubleBuffer().put(values, off, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                off += n;
+            }
+        }
+        
+        /**.
+         *
+         * <p>Appends the checksum of everything written so far.</p>
+         *
+         * @throws IOException exception thrown when writing file
+         */
+        void finish() throws IOException {
+            flush();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+        
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Reader over memory-mapped windows of a channel region.
+     */
+    private static final class Reader {
+        
+        private final FileChannel channel;
+        private final long end;
+        private long windowStart;
+        private MappedByteBuffer window;
+        
+        Reader(FileChannel channel, long start, long end) throws IOException {
+            this.channel = channel;
+            this.end = end;
+            map(start);
+        }
+        
+        void verify(long expected) throws IOException {
+            CRC32 crc = new CRC32();
+            for (long position = 0; position < end; position += MAX_WINDOW) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAX_WINDOW, end - position)));
+            }
+            if (crc.getValue() != expected) {
+                throw new IOException("snapshot checksum mismatch");
+            }
+        }
+        
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return window.getInt();
+        }
+        
+        long getLong() throws IOException {
+            ensure(Long.BYTES);
+            return window.getLong();
+        }
+        
+        byte[] getBytes(int count) throws IOException {
+            byte[] bytes = new byte[count];
+            for (int off = 0; off < count; ) {
+                ensure(1);
+                int n = Math.min(window.remaining(), count - off);
+                window.get(bytes, off, n);
+                off += n;
+            }
+            return bytes;
+        }
+        
+        int[] getInts(int count) throws IOException {
+            int[] values = new int[count];
+            for (int off = 0; off < count; ) {
+                ensure(Integer.BYTES);
+                int n = Math.min(window.remaining() / Integer.BYTES, count - off);
+                window.asIntBuffer().get(values, off, n);
+                window.position(window.position() + n * Integer.BYTES);
+                off += n;
+            }
+            return values;
+        }
+        
+        double[] getDoubles(int count) throws IOException {
+            double[] values = new double[count];
+            for (int off = 0; off < count; ) {
+                ensure(Double.BYTES);
+                int n = Math.min(window.remaining() / Double.BYTES, count - off);
+                window.asDoubleBuffer().get(values, off, n);
+                window.position(window.position() + n * Double.BYTES);
+                off += n;
+            }
+            return values;
+        }
+        
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                map(windowStart + window.position());
+                if (window.remaining() < bytes) {
+                    throw new IOException("truncated snapshot");
+                }
+            }
+        }
+        
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(MAX_WINDOW, end - position));
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package cn.sustech;
+
+import java.util.Arrays;
+
+/**
+ * Columnar store of the course rows.
+ *
+ * <p>Every column of {@link CourseColumn} is kept in its own primitive array: text columns as
+ * {@link StringDictionary} codes, the launch date as an {@code int} epoch day and the numeric
+ * columns as {@code int[]} or {@code double[]}. Arrays may be longer than {@link #size()};
+ * only the first {@code size} entries are rows.</p>
+ *
+ * <p>A table loaded from {@link LazyColumns} starts with no column parsed; each column is
+ * parsed from the file the first time it is asked for, once, and kept. Adding rows parses
+ * every remaining column first.</p>
+ */
+final class CourseTable {
+    
+    private static final CourseColumn[] COLUMNS = CourseColumn.values();
+    
+    private static final int ALL = (1 << COLUMNS.length) - 1;
+    
+    private final StringDictionary[] dictionaries = new StringDictionary[COLUMNS.length];
+    private final int[][] ints = new int[COLUMNS.length][];
+    private final double[][] doubles = new double[COLUMNS.length][];
+    private int size;
+    
+    private LazyColumns lazy;
+    
+    // one bit per parsed column, set after the column array so that a reader who sees the bit
+    // also sees the array
+    private volatile int materialized = ALL;
+    
+    CourseTable() {
+        this(64);
+    }
+    
+    CourseTable(int capacity) {
+        for (CourseColumn column : COLUMNS) {
+            switch (column.type()) {
+                case TEXT -> {
+                    dictionaries[column.ordinal()] = new StringDictionary();
+                    ints[column.ordinal()] = new int[capacity];
+                }
+                case INT, DATE -> ints[column.ordinal()] = new int[capacity];
+                default -> doubles[column.ordinal()] = new double[capacity];
+            }
+        }
+    }
+    
+    /**.
+     *
+     * <p>Wraps already decoded columns, indexed by {@link CourseColumn#ordinal()}.</p>
+     *
+     * @param size the number of rows
+     * @param dictionaries the dictionaries of the text columns
+     * @param ints the code, date and int columns
+     * @param doubles the double columns
+     */
+    CourseTable(int size, StringDictionary[] dictionaries, int[][] ints, double[][] doubles) {
+        System.arraycopy(dictionaries, 0, this.dictionaries, 0, COLUMNS.length);
+        System.arraycopy(ints, 0, this.ints, 0, COLUMNS.length);
+        System.arraycopy(doubles, 0, this.doubles, 0, COLUMNS.length);
+        this.size = size;
+    }
+    
+    /**.
+     *
+     * <p>Wraps unparsed rows, whose columns are parsed on first use.</p>
+     *
+     * @param lazy the unparsed rows
+     */
+    CourseTable(LazyColumns lazy) {
+        this.lazy = lazy;
+        this.size = lazy.size();
+        this.materialized = 0;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**.
+     *
+     * <p>The values of an int column, the epoch days of the launch date column, or the
+     * dictionary codes of a text column.</p>
+     *
+     * @param column a TEXT, DATE or INT column
+     * @return the column array
+     */
+    int[] ints(CourseColumn column) {
+        load(column);
+        return ints[column.ordinal()];
+    }
+    
+    double[] doubles(CourseColumn column) {
+        load(column);
+        return doubles[column.ordinal()];
+    }
+    
+    StringDictionary dictionary(CourseColumn column) {
+        load(column);
+        return dictionaries[column.ordinal()];
+    }
+    
+    /**.
+     *
+     * <p>Whether a column has been parsed; always true unless the table is lazy.</p>
+     *
+     * @param column the column
+     * @return whether the column is in memory
+     */
+    boolean isMaterialized(CourseColumn column) {
+        return (materialized & 1 << column.ordinal()) != 0;
+    }
+    
+    /**.
+     *
+     * <p>Decodes the value of a text column in a row.</p>
+     *
+     * @param column a TEXT column
+     * @param row the row index
+     * @return the text of the cell
+     */
+    String text(CourseColumn column, int row) {
+        return dictionary(column).value(ints(column)[row]);
+    }
+    
+    /**.
+     *
+     * <p>Appends the current record of the tokenizer as a new row.</p>
+     *
+     * @param csv a tokenizer positioned on a course record
+     */
+    void add(CsvTokenizer csv) {
+        materializeAll();
+        ensureCapacity(size + 1);
+        for (CourseColumn column : COLUMNS) {
+            int c = column.ordinal();
+            switch (column.type()) {
+                case TEXT -> ints[c][size] = csv.encode(column.field(), dictionaries[c]);
+                case INT -> ints[c][size] = csv.parseInt(column.field());
+                case DATE -> ints[c][size] = csv.parseDate(column.field());
+                default -> doubles[c][size] = csv.parseDouble(column.field());
+            }
+        }
+        size++;
+    }
+    
+    /**.
+     *
+     * <p>Appends every row of another table, re-encoding its text columns.</p>
+     *
+     * @param other the table to append
+     */
+    void addAll(CourseTable other) {
+        materializeAll();
+        other.materializeAll();
+        ensureCapacity(size + other.size);
+        for (CourseColumn column : COLUMNS) {
+            int c = column.ordinal();
+            switch (column.type()) {
+                case TEXT -> {
+                    int[] mapping = dictionaries[c].merge(other.dictionaries[c]);
+                    for (int row = 0; row < other.size; row++) {
+                        ints[c][size + row] = mapping[other.ints[c][row]];
+                    }
+                }
+                case INT, DATE -> System.arraycopy(other.ints[c], 0, ints[c], size, other.size);
+                default -> System.arraycopy(other.doubles[c], 0, doubles[c], size, other.size);
+            }
+        }
+        size += other.size;
+    }
+    
+    /**.
+     *
+     * <p>Appends some rows of another table, in the given order, re-encoding its text
+     * columns.</p>
+     *
+     * @param other the table to append from
+     * @param rows the rows of {@code other} to append
+     */
+    void addAll(CourseTable other, int[] rows) {
+        materializeAll();
+        other.materializeAll();
+        ensureCapacity(size + rows.length);
+        for (CourseColumn column : COLUMNS) {
+            int c = column.ordinal();
+            switch (column.type()) {
+                case TEXT -> {
+                    int[] mapping = dictionaries[c].merge(other.dictionaries[c]);
+                    for (int i = 0; i < rows.length; i++) {
+                        ints[c][size + i] = mapping[other.ints[c][rows[i]]];
+                    }
+                }
+                case INT, DATE -> {
+                    for (int i = 0; i < rows.length; i++) {
+                        ints[c][size + i] = other.ints[c][rows[i]];
+                    }
+                }
+                default -> {
+                    for (int i = 0; i < rows.length; i++) {
+                        doubles[c][size + i] = other.doubles[c][rows[i]];
+                    }
+                }
+            }
+        }
+        size += rows.length;
+    }
+    
+    /**.
+     *
+     * <p>Shrinks the column arrays to the number of rows, and the dictionaries to their
+     * values.</p>
+     */
+    void trimToSize() {
+        materializeAll();
+        for (int c = 0; c < COLUMNS.length; c++) {
+            if (dictionaries[c] != null) {
+                dictionaries[c].trimToSize();
+            }
+            if (ints[c] != null) {
+                ints[c] = Arrays.copyOf(ints[c], size);
+            }
+            if (doubles[c] != null) {
+                doubles[c] = Arrays.copyOf(doubles[c], size);
+            }
+        }
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes a column retains, without parsing it: the column array, and
+     * the dictionary of a text column.</p>
+     *
+     * @param column the column
+     * @return the estimated bytes, 0 for a column not parsed yet
+     */
+    long retainedBytes(CourseColumn column) {
+        if ((materialized & 1 << column.ordinal()) == 0) {
+            return 0;
+        }
+        int c = column.ordinal();
+        long bytes = dictionaries[c] == null ? 0 : dictionaries[c].retainedBytes();
+        if (ints[c] != null) {
+            bytes += MemoryFootprint.array(ints[c].length, 4);
+        }
+        if (doubles[c] != null) {
+            bytes += MemoryFootprint.array(doubles[c].length, 8);
+        }
+        return bytes;
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes of the row offsets of a lazily loaded table.</p>
+     *
+     * @return the estimated bytes, 0 once every column is parsed
+     */
+    long unparsedBytes() {
+        LazyColumns unparsed = lazy;
+        return unparsed == null ? 0 : unparsed.retainedBytes();
+    }
+    
+    private void load(CourseColumn column) {
+        if ((materialized & 1 << column.ordinal()) == 0) {
+            materialize(column);
+        }
+    }
+    
+    private void materializeAll() {
+        if (materialized != ALL) {
+            for (CourseColumn column : COLUMNS) {
+                load(column);
+            }
+        }
+    }
+    
+    private synchronized void materialize(CourseColumn column) {
+        int bit = 1 << column.ordinal();
+        if ((materialized & bit) != 0) {
+            return;
+        }
+        int c = column.ordinal();
+        switch (column.type()) {
+            case TEXT -> {
+                StringDictionary dictionary = new StringDictionary();
+                ints[c] = lazy.codes(column, dictionary);
+                dictionaries[c] = dictionary;
+            }
+            case INT -> ints[c] = lazy.ints(column);
+            case DATE -> ints[c] = lazy.dates(column);
+            default -> doubles[c] = lazy.doubles(column);
+        }
+        materialized |= bit;
+        if (materialized == ALL) {
+            lazy = null;
+        }
+    }
+    
+    private void ensureCapacity(int capacity) {
+        int current = ints[CourseColumn.INSTITUTION.ordinal()].length;
+        if (capacity <= current) {
+            return;
+        }
+        int grown = Math.max(capacity, current + (current >> 1) + 16);
+        for (int c = 0; c < COLUMNS.length; c++) {
+            if (ints[c] != null) {
+                ints[c] = Arrays.copyOf(ints[c], grown);
+            }
+            if (doubles[c] != null) {
+                doubles[c] = Arrays.copyOf(doubles[c], grown);
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package cn.sustech;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * RFC-4180 tokenizer that scans a reused byte buffer once per record.
+ *
+ * <p>Only the boundaries of each field are recorded while scanning, so numeric columns are
+ * parsed straight from the buffer and a {@code String} is built only for the text columns
+ * that ask for one. Quoted fields may contain commas, doubled quotes and line breaks.</p>
+ */
+final class CsvTokenizer implements Closeable {
+    
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private final InputStream in;
+    private byte[] buf;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private long consumed;
+    
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private boolean[] escaped = new boolean[32];
+    private boolean[] quoted = new boolean[32];
+    private int fieldCount;
+    
+    /**.
+     *
+     * <p>Creates a tokenizer reading from the given stream.</p>
+     *
+     * @param in the UTF-8 encoded csv stream
+     */
+    CsvTokenizer(InputStream in) {
+        this.in = in;
+        this.buf = new byte[DEFAULT_BUFFER_SIZE];
+    }
+    
+    /**.
+     *
+     * <p>Creates a tokenizer reading the remaining bytes of the given buffer, typically a
+     * memory-mapped region of the file.</p>
+     *
+     * @param source the UTF-8 encoded csv bytes
+     */
+    CsvTokenizer(ByteBuffer source) {
+        this(new ByteBufferInputStream(source));
+    }
+    
+    /**.
+     *
+     * <p>Advances to the next non-blank record.</p>
+     *
+     * @return false when the end of the stream has been reached
+     * @throws IOException exception thrown when reading the stream
+     */
+    boolean next() throws IOException {
+        while (readRecord()) {
+            if (fieldCount > 1 || starts[0] != ends[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    int fieldCount() {
+        return fieldCount;
+    }
+    
+    /**.
+     *
+     * <p>Materializes a field of the current record, with enclosing quotes removed and
+     * doubled quotes collapsed.</p>
+     *
+     * @param field the field index
+     * @return the field text
+     */
+    String text(int field) {
+        checkField(field);
+        return text(buf, starts[field], ends[field], escaped[field]);
+    }
+    
+    /**.
+     *
+     * <p>Encodes a field of the current record into a dictionary, decoding it only if its
+     * bytes are new to the dictionary.</p>
+     *
+     * @param field the field index
+     * @param dictionary the dictionary to encode the value with
+     * @return the code of the field text
+     */
+    int encode(int field, StringDictionary dictionary) {
+        checkField(field);
+        return dictionary.encode(buf, starts[field], ends[field], escaped[field]);
+    }
+    
+    /**.
+     *
+     * <p>Materializes the unquoted contents of a field held in a byte array.</p>
+     *
+     * @param buf the bytes
+     * @param start the first byte of the field contents
+     * @param end the byte after the field contents
+     * @param escaped whether the contents hold doubled quotes
+     * @return the field text
+     */
+    static String text(byte[] buf, int start, int end, boolean escaped) {
+        if (!escaped) {
+            return new String(buf, start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] out = new byte[end - start];
+        int n = 0;
+        for (int p = start; p < end; p++) {
+            out[n++] = buf[p];
+            if (buf[p] == '"') {
+                p++;
+            }
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+    
+    /**.
+     *
+     * <p>The offset in the stream of the first byte of a field of the current record: its
+     * opening quote when the field is quoted.</p>
+     *
+     * @param field the field index
+     * @return the stream offset
+     */
+    long fieldStart(int field) {
+        checkField(field);
+        return consumed + starts[field] - (quoted[field] ? 1 : 0);
+    }
+    
+    /**.
+     *
+     * <p>The offset in the stream after the contents of a field of the current record, before
+     * its closing quote when the field is quoted.</p>
+     *
+     * @param field the field index
+     * @return the stream offset
+     */
+    long fieldEnd(int field) {
+        checkField(field);
+        return consumed + ends[field];
+    }
+    
+    /**.
+     *
+     * <p>Parses a field of the current record as an int without building a substring.</p>
+     *
+     * @param field the field index
+     * @return the parsed value
+     */
+    int parseInt(int field) {
+        checkField(field);
+        return parseInt(buf, starts[field], ends[field], escaped[field]);
+    }
+    
+    /**.
+     *
+     * <p>Parses the contents of a field held in a byte array as an int.</p>
+     *
+     * @param buf the bytes
+     * @param start the first byte of the field contents
+     * @param end the byte after the field contents
+     * @param escaped whether the contents hold doubled quotes
+     * @return the parsed value
+     */
+    static int parseInt(byte[] buf, int start, int end, boolean escaped) {
+        int p = start;
+        boolean negative = p < end && buf[p] == '-';
+        if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+            p++;
+        }
+        if (p == end || end - p > 9) {
+            return Integer.parseInt(text(buf, start, end, escaped));
+        }
+        int value = 0;
+        for (; p < end; p++) {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(text(buf, start, end, escaped));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+    
+    /**.
+     *
+     * <p>Parses a field of the current record as a double without building a substring.
+     * Plain decimals with at most 15 digits are computed exactly from the digits (a single
+     * correctly rounded division), anything else goes through {@link Double#parseDouble}.</p>
+     *
+     * @param field the field index
+     * @return the parsed value
+     */
+    double parseDouble(int field) {
+        checkField(field);
+        return parseDouble(buf, starts[field], ends[field], escaped[field]);
+    }
+    
+    /**.
+     *
+     * <p>Parses the contents of a field held in a byte array as a double, as
+     * {@link #parseDouble(int)} does.</p>
+     *
+     * @param buf the bytes
+     * @param start the first byte of the field contents
+     * @param end the byte after the field contents
+     * @param escaped whether the contents hold doubled quotes
+     * @return the parsed value
+     */
+    static double parseDouble(byte[] buf, int start, int end, boolean escaped) {
+        int p = start;
+        boolean negative = p < end && buf[p] == '-';
+        if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = 0;
+        boolean dot = false;
+        for (; p < end; p++) {
+            byte b = buf[p];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    fraction++;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.parseDouble(text(buf, start, end, escaped));
+            }
+            if (digits > 15) {
+                return Double.parseDouble(text(buf, start, end, escaped));
+            }
+        }
+        if (digits == 0) {
+            return Double.parseDouble(text(buf, start, end, escaped));
+        }
+        double value = fraction == 0 ? mantissa : mantissa / POWERS_OF_TEN[fraction];
+        return negative ? -value : value;
+    }
+    
+    /**.
+     *
+     * <p>Parses a field of the current record as a launch date, returning its epoch day.</p>
+     *
+     * @param field the field index
+     * @return the epoch day
+     */
+    int parseDate(int field) {
+        checkField(field);
+        return parseDate(buf, starts[field], ends[field], escaped[field]);
+    }
+    
+    /**.
+     *
+     * <p>Parses the contents of a field held in a byte array as a date, returning its epoch
+     * day. Dates of the form {@code M/d/yyyy}, with one or two digit months and days, are
+     * computed straight from the digits; anything else, including out-of-range months and
+     * days, goes through the lenient {@code java.util.Date} parse in the default time zone, as
+     * all dates used to.</p>
+     *
+     * @param buf the bytes
+     * @param start the first byte of the field contents
+     * @param end the byte after the field contents
+     * @param escaped whether the contents hold doubled quotes
+     * @return the epoch day
+     */
+    static int parseDate(byte[] buf, int start, int end, boolean escaped) {
+        int p = start;
+        int month = 0;
+        int digits = 0;
+        for (; p < end && digits < 2 && buf[p] >= '0' && buf[p] <= '9'; p++, digits++) {
+            month = month * 10 + buf[p] - '0';
+        }
+        if (digits == 0 || p == end || buf[p++] != '/') {
+            return legacyDate(text(buf, start, end, escaped));
+        }
+        int day = 0;
+        digits = 0;
+        for (; p < end && digits < 2 && buf[p] >= '0' && buf[p] <= '9'; p++, digits++) {
+            day = day * 10 + buf[p] - '0';
+        }
+        if (digits == 0 || p == end || buf[p++] != '/' || end - p != 4) {
+            return legacyDate(text(buf, start, end, escaped));
+        }
+        int year = 0;
+        for (; p < end; p++) {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 9) {
+                return legacyDate(text(buf, start, end, escaped));
+            }
+            year = year * 10 + digit;
+        }
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return legacyDate(text(buf, start, end, escaped));
+        }
+        return epochDay(year, month, day);
+    }
+    
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+    
+    /**.
+     *
+     * <p>Days since 1970-01-01 of a proleptic Gregorian date, counted from March so that the
+     * leap day is the last day of a year.</p>
+     */
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+    
+    @SuppressWarnings("deprecation")
+    private static int legacyDate(String text) {
+        return Math.toIntExact(new Date(text).toInstant().atZone(ZoneId.systemDefault())
+            .toLocalDate().toEpochDay());
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+    
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException(
+                "field " + field + " of a record with " + fieldCount + " fields");
+        }
+    }
+    
+    private boolean readRecord() throws IOException {
+        while (true) {
+            if (eof && pos >= limit) {
+                return false;
+            }
+            int next = scanRecord(eof);
+            if (next >= 0) {
+                pos = next;
+                return true;
+            }
+            fill();
+        }
+    }
+    
+    /**.
+     *
+     * <p>Scans one record starting at {@code pos} and records its field boundaries.</p>
+     *
+     * @param atEof whether the buffered bytes are all that is left of the stream
+     * @return the position after the record, or -1 if more bytes are needed
+     */
+    private int scanRecord(boolean atEof) {
+        int p = pos;
+        fieldCount = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean escapes = false;
+            boolean quotes = p < limit && buf[p] == '"';
+            if (quotes) {
+                start = ++p;
+                while (true) {
+                    if (p >= limit) {
+                        if (!atEof) {
+                            return -1;
+                        }
+                        end = p;
+                        break;
+                    }
+                    if (buf[p] == '"') {
+                        if (p + 1 >= limit && !atEof) {
+                            return -1;
+                        }
+                        if (p + 1 < limit && buf[p + 1] == '"') {
+                            escapes = true;
+                            p += 2;
+                            continue;
+                        }
+                        end = p++;
+                        break;
+                    }
+                    p++;
+                }
+                p = skipToDelimiter(p);
+            } else {
+                start = p;
+                p = skipToDelimiter(p);
+                end = p;
+            }
+            if (p >= limit && !atEof) {
+                return -1;
+            }
+            addField(start, end, escapes, quotes);
+            if (p >= limit) {
+                return p;
+            }
+            if (buf[p] == ',') {
+                p++;
+                continue;
+            }
+            if (buf[p] == '\r') {
+                if (p + 1 >= limit && !atEof) {
+                    return -1;
+                }
+                return p + 1 < limit && buf[p + 1] == '\n' ? p + 2 : p + 1;
+            }
+            return p + 1;
+        }
+    }
+    
+    private int skipToDelimiter(int p) {
+        while (p < limit && buf[p] != ',' && buf[p] != '\n' && buf[p] != '\r') {
+            p++;
+        }
+        return p;
+    }
+    
+    private void addField(int start, int end, boolean escapes, boolean quotes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+            escaped = Arrays.copyOf(escaped, fieldCount * 2);
+            quoted = Arrays.copyOf(quoted, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = escapes;
+        quoted[fieldCount] = quotes;
+        fieldCount++;
+    }
+    
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            consumed += pos;
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+    
+    private static final class ByteBufferInputStream extends InputStream {
+        
+        private final ByteBuffer source;
+        
+        ByteBufferInputStream(ByteBuffer source) {
+            this.source = source;
+        }
+        
+        @Override
+        public int read() {
+            return source.hasRemaining() ? source.get() & 0xff : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, source.remaining());
+            source.get(b, off, n);
+            return n;
+        }
+    }
+}
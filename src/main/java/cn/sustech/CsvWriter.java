@@ -0,0 +1,67 @@
+package cn.sustech;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming csv writer: fields are written to the underlying writer as they are added, and
+ * quoted only when they hold a comma, a quote or a line break.
+ */
+final class CsvWriter implements Flushable {
+    
+    private final Writer out;
+    
+    private boolean firstField = true;
+    
+    CsvWriter(Writer out) {
+        this.out = out;
+    }
+    
+    CsvWriter field(String value) throws IOException {
+        separate();
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return this;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = value.indexOf('"'); i >= 0; i = value.indexOf('"', i + 1)) {
+            out.write(value, start, i + 1 - start);
+            out.write('"');
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+        return this;
+    }
+    
+    CsvWriter field(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+    
+    CsvWriter endRecord() throws IOException {
+        out.write("\r\n");
+        firstField = true;
+        return this;
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    private void separate() throws IOException {
+        if (!firstField) {
+            out.write(',');
+        }
+        firstField = false;
+    }
+}
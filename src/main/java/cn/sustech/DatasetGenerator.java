@@ -0,0 +1,364 @@
+package cn.sustech;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded generator of synthetic course datasets in the csv layout the analyzer loads.
+ *
+ * <p>The same seed and row count always produce the same bytes. Rows are drawn from a catalog
+ * of courses whose attributes are derived from the seed and the course id alone, so the
+ * generator streams any number of rows in constant memory. The data is shaped like the real
+ * dataset:</p>
+ * <ul>
+ *   <li>institutions, subjects and courses are picked with a power-law skew;</li>
+ *   <li>a course number is repeated across launch dates, with the same title, instructors
+ *   and subject;</li>
+ *   <li>instructors strings list one to five names in the "A", "A, B" and "A, B, and C"
+ *   forms;</li>
+ *   <li>subjects and some titles contain commas and quotes, so they are quoted.</li>
+ * </ul>
+ */
+public final class DatasetGenerator {
+    
+    static final String HEADER = "Institution,CourseBF Number,Launch Date,CourseBF Title,"
+        + "Instructors,CourseBF Subject,Year,Honor Code Certificates,Participants (CourseBF "
+        + "Content Accessed),Audited (> 50% CourseBF Content Accessed),Certified,% Audited,"
+        + "% Certified,% Certified of > 50% CourseBF Content Accessed,% Played Video,"
+        + "% Posted in Forum,% Grade Higher Than Zero,Total CourseBF Hours (Thousands),"
+        + "Median Hours for Certification,Median Age,% Male,% Female,"
+        + "% Bachelor's Degree or Higher";
+    
+    private static final String[] INSTITUTIONS = {"MITx", "HarvardX", "BerkeleyX", "StanfordX",
+        "DelftX", "TsinghuaX", "SUSTechX", "EPFLx", "UQx", "KyotoUx", "ColumbiaX", "GeorgetownX"};
+    
+    private static final String[] SUBJECTS = {
+        "Science, Technology, Engineering, and Mathematics", "Computer Science",
+        "Humanities, History, Design, Religion, and Education",
+        "Government, Health, and Social Science", "Economics & Finance", "Data Analysis",
+        "Art, Music, and Culture", "Language"};
+    
+    private static final String[] FIRST_NAMES = {"Eric", "John", "Chris", "David", "Anant",
+        "Sarah", "Michael", "Wei", "Mei", "Robert", "Laura", "Ana", "Peter", "Yuki", "Olga",
+        "Tomas", "Priya", "Kofi", "Elena", "Hugo", "Ines", "Jun", "Omar", "Zara"};
+    
+    private static final String[] LAST_NAMES = {"Grimson", "Guttag", "Terman", "Malan",
+        "Agarwal", "Cima", "Chen", "Zhang", "Lewin", "Smith", "Garcia", "Tanaka", "Ivanova",
+        "Novak", "Sharma", "Mensah", "Rossi", "Dubois", "Silva", "Kim", "Haddad", "Ahmed"};
+    
+    private static final String[] TITLE_WORDS = {"Introduction to", "Principles of",
+        "Advanced", "Foundations of", "Topics in", "Applied", "Modern", "Global"};
+    
+    private static final String[] TOPICS = {"Computer Science", "Solid State Chemistry",
+        "Circuits and Electronics", "Biology", "Justice", "Poetry", "Statistics",
+        "Machine Learning", "Public Health", "Architecture", "Probability", "Economics",
+        "Ancient Greek Heroes", "Data Science", "Thermodynamics", "Linear Algebra"};
+    
+    private static final long FIRST_LAUNCH = LocalDate.of(2012, 7, 1).toEpochDay();
+    
+    private static final int LAUNCH_DAYS = 8 * 365;
+    
+    private static final int CHUNK_ROWS = 1 << 16;
+    
+    private final long seed;
+    
+    /**.
+     *
+     * <p>Creates a generator.</p>
+     *
+     * @param seed the seed every generated byte depends on
+     */
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+    
+    /**.
+     *
+     * <p>Streams a header line and {@code rows} data rows to the output. The output is
+     * buffered internally and flushed, but not closed.</p>
+     *
+     * @param rows the number of data rows
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeCsv(long rows, OutputStream out) throws IOException {
+        Sink sink = new Sink(out);
+        sink.text(HEADER);
+        sink.newLine();
+        SplittableRandom random = new SplittableRandom(seed);
+        long catalog = catalogSize(rows);
+        for (long row = 0; row < rows; row++) {
+            writeRow(sink, random, catalog);
+        }
+        sink.flush();
+    }
+    
+    /**.
+     *
+     * <p>Writes a csv dataset to a file.</p>
+     *
+     * @param rows the number of data rows
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(long rows, Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            writeCsv(rows, out);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Writes the dataset {@link #writeCsv(long, Path)} would write directly as a binary
+     * snapshot, which {@link OnlineCoursesAnalyzer#fromSnapshot(Path)} loads. The rows are
+     * generated and parsed in chunks, but the snapshot is columnar, so the whole table is
+     * held in memory before it is written.</p>
+     *
+     * @param rows the number of data rows
+     * @param path the snapshot file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(int rows, Path path) throws IOException {
+        CourseTable table = new CourseTable(rows);
+        SplittableRandom random = new SplittableRandom(seed);
+        long catalog = catalogSize(rows);
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        Sink sink = new Sink(chunk);
+        for (int row = 0; row < rows; row += CHUNK_ROWS) {
+            chunk.reset();
+            for (int i = row; i < Math.min(rows, row + CHUNK_ROWS); i++) {
+                writeRow(sink, random, catalog);
+            }
+            sink.flush();
+            try (CsvTokenizer csv = new CsvTokenizer(ByteBuffer.wrap(chunk.toByteArray()))) {
+                while (csv.next()) {
+                    table.add(csv);
+                }
+            }
+        }
+        table.trimToSize();
+        CourseSnapshot.write(path, table, CourseAggregates.of(table), null);
+    }
+    
+    /**.
+     *
+     * <p>Writes a dataset from the command line: {@code <rows> <seed> <path>}. A path ending
+     * in ".snapshot" gets the binary form, any other path csv.</p>
+     *
+     * @param args the row count, seed and output path
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: DatasetGenerator <rows> <seed> <path>");
+            System.exit(2);
+        }
+        DatasetGenerator generator = new DatasetGenerator(Long.parseLong(args[1]));
+        Path path = Path.of(args[2]);
+        if (args[2].endsWith(".snapshot")) {
+            generator.writeSnapshot(Integer.parseInt(args[0]), path);
+        } else {
+            generator.writeCsv(Long.parseLong(args[0]), path);
+        }
+    }
+    
+    private static long catalogSize(long rows) {
+        return Math.max(100, rows / 6);
+    }
+    
+    /**.
+     *
+     * <p>Picks from {@code [0, n)} with a power-law skew towards 0.</p>
+     */
+    private static long skewed(SplittableRandom random, long n) {
+        double u = random.nextDouble();
+        return Math.min(n - 1, (long) (n * u * u * u));
+    }
+    
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[(int) skewed(random, values.length)];
+    }
+    
+    private void writeRow(Sink sink, SplittableRandom random, long catalog) throws IOException {
+        long course = skewed(random, catalog);
+        // everything fixed per course comes from a generator seeded by the course alone
+        SplittableRandom fixed = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + course);
+        String institution = pick(fixed, INSTITUTIONS);
+        sink.text(institution);
+        sink.comma();
+        sink.text(institution.substring(0, 2).toUpperCase());
+        sink.number(course);
+        sink.text("x");
+        sink.comma();
+        sink.date(FIRST_LAUNCH + random.nextInt(LAUNCH_DAYS));
+        sink.comma();
+        sink.quoted(title(fixed));
+        sink.comma();
+        sink.quoted(instructors(fixed));
+        sink.comma();
+        sink.quoted(pick(fixed, SUBJECTS));
+        sink.comma();
+        
+        int participants = 100 + (int) (Math.exp(random.nextDouble() * 9));
+        int audited = (int) (participants * random.nextDouble() * 0.4);
+        int certified = (int) (audited * random.nextDouble());
+        sink.number(1 + random.nextInt(4));
+        sink.comma();
+        sink.number(random.nextInt(5) == 0 ? 0 : 1);
+        sink.comma();
+        sink.number(participants);
+        sink.comma();
+        sink.number(audited);
+        sink.comma();
+        sink.number(certified);
+        sink.comma();
+        sink.hundredths(10000L * audited / participants);
+        sink.comma();
+        sink.hundredths(10000L * certified / participants);
+        sink.comma();
+        sink.hundredths(audited == 0 ? 0 : 10000L * certified / audited);
+        sink.comma();
+        sink.hundredths(random.nextInt(10001));
+        sink.comma();
+        sink.hundredths(random.nextInt(3001));
+        sink.comma();
+        sink.hundredths(random.nextInt(6001));
+        sink.comma();
+        sink.hundredths((long) participants * (50 + random.nextInt(1500)) / 1000);
+        sink.comma();
+        sink.hundredths(random.nextInt(15000));
+        sink.comma();
+        sink.number(20 + random.nextInt(20));
+        sink.comma();
+        int male = 2000 + random.nextInt(7001);
+        sink.hundredths(male);
+        sink.comma();
+        sink.hundredths(10000 - male);
+        sink.comma();
+        sink.hundredths(3000 + random.nextInt(6001));
+        sink.newLine();
+    }
+    
+    private static String title(SplittableRandom fixed) {
+        String title = pick(fixed, TITLE_WORDS) + " " + pick(fixed, TOPICS);
+        return switch (fixed.nextInt(8)) {
+            case 0 -> title + ", Part " + (1 + fixed.nextInt(3));
+            case 1 -> "The \"" + pick(fixed, TOPICS) + "\" Workshop";
+            default -> title;
+        };
+    }
+    
+    private static String instructors(SplittableRandom fixed) {
+        int count = 1 + (int) skewed(fixed, 5);
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                names.append(count > 2 && i == count - 1 ? ", and " : ", ");
+            }
+            names.append(FIRST_NAMES[fixed.nextInt(FIRST_NAMES.length)]).append(' ')
+                .append(LAST_NAMES[(int) skewed(fixed, LAST_NAMES.length)]);
+        }
+        return names.toString();
+    }
+    
+    /**
+     * Buffered writer of the ASCII fields of a csv.
+     */
+    private static final class Sink {
+        
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1 << 16];
+        private int position;
+        
+        Sink(OutputStream out) {
+            this.out = out;
+        }
+        
+        void text(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                put(value.charAt(i));
+            }
+        }
+        
+        void quoted(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+                text(value);
+                return;
+            }
+            put('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    put('"');
+                }
+                put(c);
+            }
+            put('"');
+        }
+        
+        void number(long value) throws IOException {
+            if (value >= 10) {
+                number(value / 10);
+            }
+            put((char) ('0' + value % 10));
+        }
+        
+        /**.
+         *
+         * <p>Writes a non-negative value given in hundredths with at most two decimals.</p>
+         */
+        void hundredths(long value) throws IOException {
+            number(value / 100);
+            int fraction = (int) (value % 100);
+            if (fraction != 0) {
+                put('.');
+                put((char) ('0' + fraction / 10));
+                if (fraction % 10 != 0) {
+                    put((char) ('0' + fraction % 10));
+                }
+            }
+        }
+        
+        void date(long epochDay) throws IOException {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            twoDigits(date.getMonthValue());
+            put('/');
+            twoDigits(date.getDayOfMonth());
+            put('/');
+            number(date.getYear());
+        }
+        
+        private void twoDigits(int value) throws IOException {
+            put((char) ('0' + value / 10));
+            put((char) ('0' + value % 10));
+        }
+        
+        void comma() throws IOException {
+            put(',');
+        }
+        
+        void newLine() throws IOException {
+            put('\n');
+        }
+        
+        private void put(char c) throws IOException {
+            if (position == buffer.length) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = (byte) c;
+        }
+        
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package cn.sustech;
+
+/**
+ * What an analyzer loaded from several data files does with a row whose course number and
+ * launch date are those of a row from another file. Rows of the same file are always kept.
+ */
+public enum DuplicatePolicy {
+    
+    /** Keeps every row, as appending the files one by one does. */
+    KEEP_ALL,
+    /** Keeps the row of the file loaded first, files of one load taken in name order. */
+    KEEP_FIRST,
+    /** Fails the load, so that no row of it is merged. */
+    REJECT
+}
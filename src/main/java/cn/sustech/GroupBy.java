@@ -0,0 +1,442 @@
+package cn.sustech;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Group-by aggregation over a {@link CourseTable}: rows are grouped by one or more TEXT, DATE
+ * or INT key columns and each group gets a count, sum, average, minimum or maximum of DATE,
+ * INT or DOUBLE columns.
+ *
+ * <p>Groups are found from the dictionary codes, epoch days and int values of the key columns,
+ * never from the decoded strings. The first key column (with the second when the first is
+ * dictionary codes, which are never negative) is packed into one long and looked up in a
+ * {@link LongIntHashMap}; every further key column is packed with the group id found so far
+ * and looked up in the next map. A range of rows is first mapped to group ids, then each
+ * aggregate is folded into its own {@code long[]} or {@code double[]} accumulator in one tight
+ * loop. Groups are numbered in the order their first row appears.</p>
+ *
+ * <p>On a pool, large tables are split into partitions, each grouped into its own partial
+ * {@link Groups}, and each right partial is merged into its left one, so the groups first seen
+ * on the left keep their numbers and the group order is still that of the first rows.</p>
+ *
+ * <p>A {@code GroupBy} is immutable: {@link #count()}, {@link #sum(CourseColumn)} and the
+ * other aggregate methods return a copy with one more aggregate.</p>
+ *
+ * <p>Like {@link CourseTable} and {@link CourseColumn}, which it is defined over, the engine is
+ * internal to this package: new reports are built on it here and published as methods of
+ * {@link OnlineCoursesAnalyzer}, as the participant-count queries are.</p>
+ */
+final class GroupBy {
+    
+    private static final int MIN_PARTITION = 1 << 16;
+    
+    /**
+     * An aggregate function.
+     */
+    enum Function {
+        COUNT, SUM, AVG, MIN, MAX
+    }
+    
+    private final CourseColumn[] keys;
+    
+    private final Function[] functions;
+    
+    private final CourseColumn[] columns;
+    
+    private GroupBy(CourseColumn[] keys, Function[] functions, CourseColumn[] columns) {
+        this.keys = keys;
+        this.functions = functions;
+        this.columns = columns;
+    }
+    
+    /**.
+     *
+     * <p>Groups by the given key columns, with no aggregates yet.</p>
+     *
+     * @param keys TEXT, DATE or INT columns
+     * @return the grouping
+     */
+    static GroupBy by(CourseColumn... keys) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("no key columns");
+        }
+        for (CourseColumn key : keys) {
+            if (key.type() == CourseColumn.Type.DOUBLE) {
+                throw new IllegalArgumentException("cannot group by " + key);
+            }
+        }
+        return new GroupBy(keys.clone(), new Function[0], new CourseColumn[0]);
+    }
+    
+    GroupBy count() {
+        return with(Function.COUNT, null);
+    }
+    
+    GroupBy sum(CourseColumn column) {
+        return with(Function.SUM, column);
+    }
+    
+    GroupBy avg(CourseColumn column) {
+        return with(Function.AVG, column);
+    }
+    
+    GroupBy min(CourseColumn column) {
+        return with(Function.MIN, column);
+    }
+    
+    GroupBy max(CourseColumn column) {
+        return with(Function.MAX, column);
+    }
+    
+    private GroupBy with(Function function, CourseColumn column) {
+        if (column != null && column.type() == CourseColumn.Type.TEXT) {
+            throw new IllegalArgumentException("cannot aggregate " + column);
+        }
+        Function[] functions = Arrays.copyOf(this.functions, this.functions.length + 1);
+        CourseColumn[] columns = Arrays.copyOf(this.columns, this.columns.length + 1);
+        functions[functions.length - 1] = function;
+        columns[columns.length - 1] = column;
+        return new GroupBy(keys, functions, columns);
+    }
+    
+    /**.
+     *
+     * <p>Groups every row of the table sequentially.</p>
+     *
+     * @param table the course table
+     * @return the groups
+     */
+    Groups run(CourseTable table) {
+        return run(table, 0, table.size(), null);
+    }
+    
+    /**.
+     *
+     * <p>Groups a range of rows, in partitions on the pool when the range is large.</p>
+     *
+     * @param table the course table
+     * @param from the first row
+     * @param to the row after the last row
+     * @param pool the pool to group on, or null to group sequentially
+     * @return the groups
+     */
+    Groups run(CourseTable table, int from, int to, ForkJoinPool pool) {
+        if (pool == null || to - from < 2 * MIN_PARTITION) {
+            Groups groups = new Groups(this, table);
+            groups.add(from, to);
+            return groups;
+        }
+        return pool.invoke(new GroupTask(this, table, from, to));
+    }
+    
+    /**
+     * The groups found over some rows and their aggregates, in the order of
+     * {@link GroupBy#by(CourseColumn...)} and the aggregate methods.
+     */
+    static final class Groups {
+        
+        private final GroupBy spec;
+        
+        private final CourseTable table;
+        
+        // level 0 is keyed by the first one or two key columns, each further level by
+        // (group id of the previous level, next key column); the last level numbers the groups
+        private final LongIntHashMap[] levels;
+        
+        private final boolean packsTwo;
+        
+        private int[][] codes;
+        
+        private long[] counts;
+        
+        private final long[][] longs;
+        
+        private final double[][] doubles;
+        
+        private int size;
+        
+        private Groups(GroupBy spec, CourseTable table) {
+            this.spec = spec;
+            this.table = table;
+            packsTwo = spec.keys.length > 1 && spec.keys[0].type() == CourseColumn.Type.TEXT;
+            levels = new LongIntHashMap[spec.keys.length - (packsTwo ? 1 : 0)];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = new LongIntHashMap();
+            }
+            int capacity = 16;
+            codes = new int[spec.keys.length][capacity];
+            counts = new long[capacity];
+            longs = new long[spec.functions.length][];
+            doubles = new double[spec.functions.length][];
+            for (int a = 0; a < spec.functions.length; a++) {
+                CourseColumn column = spec.columns[a];
+                if (column == null) {
+                    continue;
+                }
+                if (column.type() != CourseColumn.Type.DOUBLE) {
+                    longs[a] = new long[capacity];
+                } else {
+                    doubles[a] = new double[capacity];
+                }
+            }
+        }
+        
+        /**.
+         *
+         * <p>The number of groups.</p>
+         *
+         * @return the group count
+         */
+        int size() {
+            return size;
+        }
+        
+        /**.
+         *
+         * <p>The value of a key column for a group: a dictionary code for a TEXT column, an
+         * epoch day for a DATE column, the int itself for an INT column.</p>
+         *
+         * @param key the index of the key column
+         * @param group the group, from 0 in order of first row
+         * @return the key value
+         */
+        int code(int key, int group) {
+            return codes[key][group];
+        }
+        
+        /**.
+         *
+         * <p>The decoded value of a TEXT key column for a group.</p>
+         *
+         * @param key the index of the key column
+         * @param group the group
+         * @return the key text
+         */
+        String text(int key, int group) {
+            return table.dictionary(spec.keys[key]).value(codes[key][group]);
+        }
+        
+        /**.
+         *
+         * <p>The number of rows in a group.</p>
+         *
+         * @param group the group
+         * @return the row count
+         */
+        long count(int group) {
+            return counts[group];
+        }
+        
+        /**.
+         *
+         * <p>The value of an aggregate for a group. Sums, minimums and maximums of DATE and INT
+         * columns are exact longs; see {@link #longValue(int, int)}.</p>
+         *
+         * @param aggregate the index of the aggregate
+         * @param group the group
+         * @return the aggregate value
+         */
+        double value(int aggregate, int group) {
+            return switch (spec.functions[aggregate]) {
+                case COUNT -> counts[group];
+                case AVG -> (longs[aggregate] != null ? (double) longs[aggregate][group]
+                    : doubles[aggregate][group]) / counts[group];
+                default -> longs[aggregate] != null ? longs[aggregate][group]
+                    : doubles[aggregate][group];
+            };
+        }
+        
+        /**.
+         *
+         * <p>The value of an aggregate for a group as a long, exact for counts and for sums,
+         * minimums and maximums of DATE and INT columns.</p>
+         *
+         * @param aggregate the index of the aggregate
+         * @param group the group
+         * @return the aggregate value
+         */
+        long longValue(int aggregate, int group) {
+            if (spec.functions[aggregate] == Function.COUNT) {
+                return counts[group];
+            }
+            if (spec.functions[aggregate] != Function.AVG && longs[aggregate] != null) {
+                return longs[aggregate][group];
+            }
+            return (long) value(aggregate, group);
+        }
+        
+        private void add(int from, int to) {
+            int[][] keyColumns = new int[spec.keys.length][];
+            for (int k = 0; k < keyColumns.length; k++) {
+                keyColumns[k] = table.ints(spec.keys[k]);
+            }
+            int[] group = new int[to - from];
+            for (int row = from; row < to; row++) {
+                int g = group(keyColumns, row);
+                group[row - from] = g;
+                counts[g]++;
+            }
+            for (int a = 0; a < spec.functions.length; a++) {
+                CourseColumn column = spec.columns[a];
+                if (column == null) {
+                    continue;
+                }
+                Function function = spec.functions[a];
+                if (longs[a] != null) {
+                    long[] acc = longs[a];
+                    int[] values = table.ints(column);
+                    switch (function) {
+                        case MIN -> {
+                            for (int i = 0; i < group.length; i++) {
+                                acc[group[i]] = Math.min(acc[group[i]], values[from + i]);
+                            }
+                        }
+                        case MAX -> {
+                            for (int i = 0; i < group.length; i++) {
+                                acc[group[i]] = Math.max(acc[group[i]], values[from + i]);
+                            }
+                        }
+                        default -> {
+                            for (int i = 0; i < group.length; i++) {
+                                acc[group[i]] += values[from + i];
+                            }
+                        }
+                    }
+                } else {
+                    double[] acc = doubles[a];
+                    double[] values = table.doubles(column);
+                    switch (function) {
+                        case MIN -> {
+                            for (int i = 0; i < group.length; i++) {
+                                acc[group[i]] = Math.min(acc[group[i]], values[from + i]);
+                            }
+                        }
+                        case MAX -> {
+                            for (int i = 0; i < group.length; i++) {
+                                acc[group[i]] = Math.max(acc[group[i]], values[from + i]);
+                            }
+                        }
+                        default -> {
+                            for (int i = 0; i < group.length; i++) {
+                                acc[group[i]] += values[from + i];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        
+        /**.
+         *
+         * <p>Merges the groups of a later range of rows into these.</p>
+         */
+        private Groups merge(Groups other) {
+            for (int o = 0; o < other.size; o++) {
+                int g = group(other.codes, o);
+                counts[g] += other.counts[o];
+                for (int a = 0; a < spec.functions.length; a++) {
+                    Function function = spec.functions[a];
+                    if (longs[a] != null) {
+                        long value = other.longs[a][o];
+                        longs[a][g] = function == Function.MIN ? Math.min(longs[a][g], value)
+                            : function == Function.MAX ? Math.max(longs[a][g], value)
+                            : longs[a][g] + value;
+                    } else if (doubles[a] != null) {
+                        double value = other.doubles[a][o];
+                        doubles[a][g] = function == Function.MIN ? Math.min(doubles[a][g], value)
+                            : function == Function.MAX ? Math.max(doubles[a][g], value)
+                            : doubles[a][g] + value;
+                    }
+                }
+            }
+            return this;
+        }
+        
+        /**.
+         *
+         * <p>Finds or creates the group of the key values at {@code at} in the given key
+         * arrays, which are either table columns or the key codes of other groups.</p>
+         */
+        private int group(int[][] keyValues, int at) {
+            int k = packsTwo ? 2 : 1;
+            long key = packsTwo ? (long) keyValues[0][at] << 32 | keyValues[1][at] & 0xffffffffL
+                : keyValues[0][at] & 0xffffffffL;
+            int g = levels[0].addTo(key, 0);
+            for (int level = 1; level < levels.length; level++, k++) {
+                g = levels[level].addTo((long) g << 32 | keyValues[k][at] & 0xffffffffL, 0);
+            }
+            if (g == size) {
+                newGroup(keyValues, at);
+            }
+            return g;
+        }
+        
+        private void newGroup(int[][] keyValues, int at) {
+            if (size == counts.length) {
+                int capacity = size * 2;
+                for (int k = 0; k < codes.length; k++) {
+                    codes[k] = Arrays.copyOf(codes[k], capacity);
+                }
+                counts = Arrays.copyOf(counts, capacity);
+                for (int a = 0; a < spec.functions.length; a++) {
+                    if (longs[a] != null) {
+                        longs[a] = Arrays.copyOf(longs[a], capacity);
+                    }
+                    if (doubles[a] != null) {
+                        doubles[a] = Arrays.copyOf(doubles[a], capacity);
+                    }
+                }
+            }
+            for (int k = 0; k < codes.length; k++) {
+                codes[k][size] = keyValues[k][at];
+            }
+            for (int a = 0; a < spec.functions.length; a++) {
+                Function function = spec.functions[a];
+                if (longs[a] != null) {
+                    longs[a][size] = function == Function.MIN ? Long.MAX_VALUE
+                        : function == Function.MAX ? Long.MIN_VALUE : 0;
+                } else if (doubles[a] != null) {
+                    doubles[a][size] = function == Function.MIN ? Double.POSITIVE_INFINITY
+                        : function == Function.MAX ? Double.NEGATIVE_INFINITY : 0;
+                }
+            }
+            size++;
+        }
+    }
+    
+    /**
+     * Splits a row range in halves until it is small enough to group.
+     */
+    private static final class GroupTask extends RecursiveTask<Groups> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final GroupBy spec;
+        private final CourseTable table;
+        private final int from;
+        private final int to;
+        
+        GroupTask(GroupBy spec, CourseTable table, int from, int to) {
+            this.spec = spec;
+            this.table = table;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Groups compute() {
+            if (to - from < 2 * MIN_PARTITION) {
+                Groups groups = new Groups(spec, table);
+                groups.add(from, to);
+                return groups;
+            }
+            int middle = (from + to) >>> 1;
+            GroupTask left = new GroupTask(spec, table, from, middle);
+            left.fork();
+            Groups right = new GroupTask(spec, table, middle, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cn.sustech;
+
+import java.util.List;
+
+/**
+ * Receives the courses of one instructor from
+ * {@link OnlineCoursesAnalyzer#forEachCourseListOfInstructor}.
+ */
+@FunctionalInterface
+public interface InstructorCourses {
+    
+    /**.
+     *
+     * <p>Accepts the courses of an instructor. The lists are read-only views that are only
+     * valid during the call; copy them to keep them.</p>
+     *
+     * @param instructor the instructor name
+     * @param solo the titles of the instructor's independently responsible courses
+     * @param coDeveloped the titles of the instructor's co-developed courses
+     */
+    void accept(String instructor, List<String> solo, List<String> coDeveloped);
+}
@@ -0,0 +1,212 @@
+package cn.sustech;
+
+import static cn.sustech.CourseColumn.COURSE_TITLE;
+import static cn.sustech.CourseColumn.INSTRUCTORS;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Inverted index from instructor name to the titles of the courses they teach alone and the
+ * titles of the courses they co-develop.
+ *
+ * <p>Each distinct instructors string is split into names once: "and " is dropped and the
+ * names are separated by commas. A course whose instructors string is exactly one name is a
+ * solo course of that name; any other course is a co-developed course of each of its names.
+ * Names are matched exactly, so a name is never credited with the courses of a longer name
+ * it happens to be a suffix or prefix of.</p>
+ */
+final class InstructorIndex {
+    
+    private final Map<String, int[][]> titlesByName;
+    
+    private InstructorIndex(Map<String, int[][]> titlesByName) {
+        this.titlesByName = titlesByName;
+    }
+    
+    /**.
+     *
+     * <p>Builds the index with one pass over the rows and one pass over the distinct
+     * instructors strings.</p>
+     *
+     * @param table the course table
+     * @return the index
+     */
+    static InstructorIndex build(CourseTable table) {
+        StringDictionary instructors = table.dictionary(INSTRUCTORS);
+        StringDictionary titles = table.dictionary(COURSE_TITLE);
+        int[] instructorCodes = table.ints(INSTRUCTORS);
+        int[] titleCodes = table.ints(COURSE_TITLE);
+        
+        int[] offsets = new int[instructors.size() + 1];
+        for (int row = 0; row < table.size(); row++) {
+            offsets[instructorCodes[row] + 1]++;
+        }
+        for (int code = 0; code < instructors.size(); code++) {
+            offsets[code + 1] += offsets[code];
+        }
+        int[] titlesByCode = new int[table.size()];
+        int[] fill = Arrays.copyOf(offsets, instructors.size());
+        for (int row = 0; row < table.size(); row++) {
+            titlesByCode[fill[instructorCodes[row]]++] = titleCodes[row];
+        }
+        
+        Map<String, IntList[]> lists = new LinkedHashMap<>();
+        for (int code = 0; code < instructors.size(); code++) {
+            String value = instructors.value(code);
+            Set<String> names = new LinkedHashSet<>(
+                Arrays.asList(value.replace("and ", "").replace(", ", ",").split(",")));
+            boolean solo = names.size() == 1 && names.contains(value);
+            for (String name : names) {
+                IntList list = lists.computeIfAbsent(name,
+                    n -> new IntList[] {new IntList(), new IntList()})[solo ? 0 : 1];
+                list.addAll(titlesByCode, offsets[code], offsets[code + 1]);
+            }
+        }
+        
+        int[] rank = titles.ranks();
+        int[] byTitle = new int[rank.length];
+        for (int code = 0; code < rank.length; code++) {
+            byTitle[rank[code]] = code;
+        }
+        Map<String, int[][]> titlesByName = new HashMap<>();
+        lists.forEach((name, pair) -> titlesByName.put(name,
+            new int[][] {pair[0].sortedDistinct(rank, byTitle),
+                pair[1].sortedDistinct(rank, byTitle)}));
+        return new InstructorIndex(titlesByName);
+    }
+    
+    /**.
+     *
+     * <p>Materializes the index as instructor name to [solo titles, co-developed titles],
+     * both sorted alphabetically.</p>
+     *
+     * @param titles the title dictionary the index was built with
+     * @return a new map the caller may modify
+     */
+    Map<String, List<List<String>>> toMap(StringDictionary titles) {
+        Map<String, List<List<String>>> result = new HashMap<>();
+        titlesByName.forEach((name, codes) -> {
+            List<List<String>> lists = new ArrayList<>(2);
+            for (int[] list : codes) {
+                List<String> names = new ArrayList<>(list.length);
+                for (int code : list) {
+                    names.add(titles.value(code));
+                }
+                lists.add(names);
+            }
+            result.put(name, lists);
+        });
+        return result;
+    }
+    
+    /**.
+     *
+     * <p>Passes each instructor's titles to the action, instructors in alphabetical order,
+     * as views over the index that decode titles as they are read.</p>
+     *
+     * @param titles the title dictionary the index was built with
+     * @param action receives the courses of each instructor
+     */
+    void forEach(StringDictionary titles, InstructorCourses action) {
+        String[] names = titlesByName.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        for (String name : names) {
+            int[][] codes = titlesByName.get(name);
+            action.accept(name, new Titles(titles, codes[0]), new Titles(titles, codes[1]));
+        }
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes of the index: a hash map node, the name and the two title arrays
+     * per instructor.</p>
+     *
+     * @return the estimated bytes
+     */
+    long retainedBytes() {
+        long bytes = MemoryFootprint.array(2L * titlesByName.size(), 4);
+        for (Map.Entry<String, int[][]> entry : titlesByName.entrySet()) {
+            int[][] lists = entry.getValue();
+            bytes += 32 + QueryCache.weigh(entry.getKey()) + MemoryFootprint.array(2, 4)
+                + MemoryFootprint.array(lists[0].length, 4)
+                + MemoryFootprint.array(lists[1].length, 4);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Read-only list of the titles of some title codes.
+     */
+    private static final class Titles extends AbstractList<String> implements RandomAccess {
+        
+        private final StringDictionary titles;
+        private final int[] codes;
+        
+        Titles(StringDictionary titles, int[] codes) {
+            this.titles = titles;
+            this.codes = codes;
+        }
+        
+        @Override
+        public String get(int index) {
+            return titles.value(codes[index]);
+        }
+        
+        @Override
+        public int size() {
+            return codes.length;
+        }
+    }
+    
+    /**
+     * Growable list of primitive ints.
+     */
+    private static final class IntList {
+        
+        private int[] values = new int[4];
+        private int size;
+        
+        void addAll(int[] source, int from, int to) {
+            int count = to - from;
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + count));
+            }
+            System.arraycopy(source, from, values, size, count);
+            size += count;
+        }
+        
+        /**.
+         *
+         * <p>Returns the distinct values ordered by their rank.</p>
+         *
+         * @param rank the sort rank of each value
+         * @param byRank the value of each rank
+         * @return the sorted distinct values
+         */
+        int[] sortedDistinct(int[] rank, int[] byRank) {
+            int[] ranks = new int[size];
+            for (int i = 0; i < size; i++) {
+                ranks[i] = rank[values[i]];
+            }
+            Arrays.sort(ranks);
+            int n = 0;
+            int previous = -1;
+            for (int i = 0; i < size; i++) {
+                if (ranks[i] != previous) {
+                    previous = ranks[i];
+                    ranks[n++] = byRank[previous];
+                }
+            }
+            return Arrays.copyOf(ranks, n);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package cn.sustech;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming JSON writer: values are written to the underlying writer as they are added, so
+ * large results never have to be held as one string.
+ *
+ * <p>Separators are inserted automatically. The writer does not check that the calls form
+ * valid JSON; every begin must be matched by an end, and each value in an object must be
+ * preceded by a name.</p>
+ */
+final class JsonWriter implements Flushable {
+    
+    private final Writer out;
+    
+    // whether the current container already has an element, one flag per nesting level
+    private boolean[] nonEmpty = new boolean[8];
+    
+    private int depth;
+    
+    private boolean afterName;
+    
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+    
+    JsonWriter beginObject() throws IOException {
+        return begin('{');
+    }
+    
+    JsonWriter endObject() throws IOException {
+        return end('}');
+    }
+    
+    JsonWriter beginArray() throws IOException {
+        return begin('[');
+    }
+    
+    JsonWriter endArray() throws IOException {
+        return end(']');
+    }
+    
+    JsonWriter name(String name) throws IOException {
+        separate();
+        string(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+    
+    JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            out.write("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+    
+    JsonWriter value(long value) throws IOException {
+        separate();
+        out.write(Long.toString(value));
+        return this;
+    }
+    
+    /**.
+     *
+     * <p>Writes a number; NaN and infinities, which JSON cannot represent, become null.</p>
+     */
+    JsonWriter value(double value) throws IOException {
+        separate();
+        out.write(Double.isFinite(value) ? Double.toString(value) : "null");
+        return this;
+    }
+    
+    JsonWriter strings(List<String> values) throws IOException {
+        beginArray();
+        for (String value : values) {
+            value(value);
+        }
+        return endArray();
+    }
+    
+    JsonWriter counts(Map<String, Integer> counts) throws IOException {
+        beginObject();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            name(entry.getKey()).value(entry.getValue());
+        }
+        return endObject();
+    }
+    
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    private JsonWriter begin(char bracket) throws IOException {
+        separate();
+        out.write(bracket);
+        if (++depth == nonEmpty.length) {
+            nonEmpty = Arrays.copyOf(nonEmpty, depth * 2);
+        }
+        nonEmpty[depth] = false;
+        return this;
+    }
+    
+    private JsonWriter end(char bracket) throws IOException {
+        depth--;
+        out.write(bracket);
+        return this;
+    }
+    
+    private void separate() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (nonEmpty[depth]) {
+            out.write(',');
+        }
+        nonEmpty[depth] = true;
+    }
+    
+    private void string(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.write(value, start, i - start);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> out.write(String.format("\\u%04x", (int) c));
+            }
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+}
@@ -0,0 +1,149 @@
+package cn.sustech;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values, such as latencies in nanoseconds.
+ *
+ * <p>Values below 16 have a bucket each; above that every power of two is split into 8
+ * buckets, so a recorded value is known to within 12.5% over the whole long range in 488
+ * buckets. Recording is one atomic increment of the bucket plus updates of striped sum and
+ * max cells, so concurrent recorders do not block each other.</p>
+ */
+final class LatencyHistogram {
+    
+    private static final int LINEAR = 16;
+    
+    private static final int SUB_BUCKET_BITS = 3;
+    
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    
+    private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    
+    private final LongAdder sum = new LongAdder();
+    
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    
+    /**.
+     *
+     * <p>Records a value; negative values are recorded as 0.</p>
+     *
+     * @param value the value
+     */
+    void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+    
+    static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+    
+    /**.
+     *
+     * <p>The smallest value that falls into a bucket.</p>
+     */
+    static long lowerBound(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+    
+    /**.
+     *
+     * <p>Copies the counts, sum and max. Values recorded during the copy may be missing
+     * from some of them.</p>
+     *
+     * @return the copy
+     */
+    Counts counts() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Counts(copy, sum.sum(), max.get());
+    }
+    
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+    
+    /**
+     * A point-in-time copy of a histogram.
+     */
+    static final class Counts {
+        
+        private final long[] counts;
+        private final long total;
+        private final long sum;
+        private final long max;
+        
+        Counts(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.total = total;
+            this.sum = sum;
+            this.max = max;
+        }
+        
+        long total() {
+            return total;
+        }
+        
+        long sum() {
+            return sum;
+        }
+        
+        long max() {
+            return max;
+        }
+        
+        double mean() {
+            return total == 0 ? 0 : (double) sum / total;
+        }
+        
+        /**.
+         *
+         * <p>The value below which the given fraction of the recorded values fall, as the
+         * lower bound of its bucket but never above the max.</p>
+         *
+         * @param fraction the fraction, from 0 to 1
+         * @return the percentile value, 0 if nothing was recorded
+         */
+        long percentile(double fraction) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    return Math.min(max, lowerBound(bucket));
+                }
+            }
+            return max;
+        }
+    }
+}
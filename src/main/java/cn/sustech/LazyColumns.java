@@ -0,0 +1,205 @@
+package cn.sustech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The unparsed rows of a memory-mapped csv file, from which single columns are parsed on
+ * demand.
+ *
+ * <p>Loading only tokenizes the file to find the rows and records, per row, the offset of each
+ * of the 23 fields and the end of the last one. Parsing a column later reads just that field
+ * of every row from the mapping, so a column that no query needs costs neither parse time nor
+ * heap. Offsets are ints, which is why files must be smaller than 2GB.</p>
+ */
+final class LazyColumns {
+    
+    private static final int FIELDS = CourseColumn.values().length;
+    
+    private static final int STRIDE = FIELDS + 1;
+    
+    private final ByteBuffer data;
+    
+    private final int[] offsets;
+    
+    private final int size;
+    
+    private LazyColumns(ByteBuffer data, int[] offsets, int size) {
+        this.data = data;
+        this.offsets = offsets;
+        this.size = size;
+    }
+    
+    /**.
+     *
+     * <p>Maps a data file (.csv file with a header line) and records the field offsets of its
+     * rows.</p>
+     *
+     * @param path the data file
+     * @return the unparsed rows
+     * @throws IOException if the file cannot be read or is 2GB or larger
+     */
+    static LazyColumns scan(Path path) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() >= Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to load lazily");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int[] offsets = new int[STRIDE * 64];
+        int size = 0;
+        try (CsvTokenizer csv = new CsvTokenizer(data.duplicate())) {
+            csv.next();
+            while (csv.next()) {
+                if (csv.fieldCount() < FIELDS) {
+                    throw new IndexOutOfBoundsException("field " + (FIELDS - 1)
+                        + " of a record with " + csv.fieldCount() + " fields");
+                }
+                if ((size + 1) * STRIDE > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                int base = size * STRIDE;
+                for (int field = 0; field < FIELDS; field++) {
+                    offsets[base + field] = (int) csv.fieldStart(field);
+                }
+                offsets[base + FIELDS] = (int) csv.fieldEnd(FIELDS - 1);
+                size++;
+            }
+        }
+        return new LazyColumns(data, Arrays.copyOf(offsets, size * STRIDE), size);
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes of the row offsets; the mapped file is off heap.</p>
+     *
+     * @return the estimated bytes
+     */
+    long retainedBytes() {
+        return MemoryFootprint.array(offsets.length, 4);
+    }
+    
+    /**.
+     *
+     * <p>Parses an INT column.</p>
+     *
+     * @param column an INT column
+     * @return the values of every row
+     */
+    int[] ints(CourseColumn column) {
+        int[] values = new int[size];
+        Field field = new Field();
+        for (int row = 0; row < size; row++) {
+            field.read(row, column.field());
+            values[row] = CsvTokenizer.parseInt(field.bytes, field.start, field.end,
+                field.escaped);
+        }
+        return values;
+    }
+    
+    /**.
+     *
+     * <p>Parses a TEXT column into dictionary codes.</p>
+     *
+     * @param column a TEXT column
+     * @param dictionary the dictionary to encode the values with
+     * @return the codes of every row
+     */
+    int[] codes(CourseColumn column, StringDictionary dictionary) {
+        int[] codes = new int[size];
+        Field field = new Field();
+        for (int row = 0; row < size; row++) {
+            field.read(row, column.field());
+            codes[row] = dictionary.encode(field.bytes, field.start, field.end, field.escaped);
+        }
+        dictionary.trimToSize();
+        return codes;
+    }
+    
+    /**.
+     *
+     * <p>Parses the DATE column into epoch days.</p>
+     *
+     * @param column the DATE column
+     * @return the epoch days of every row
+     */
+    int[] dates(CourseColumn column) {
+        int[] days = new int[size];
+        Field field = new Field();
+        for (int row = 0; row < size; row++) {
+            field.read(row, column.field());
+            days[row] = CsvTokenizer.parseDate(field.bytes, field.start, field.end,
+                field.escaped);
+        }
+        return days;
+    }
+    
+    /**.
+     *
+     * <p>Parses a DOUBLE column.</p>
+     *
+     * @param column a DOUBLE column
+     * @return the values of every row
+     */
+    double[] doubles(CourseColumn column) {
+        double[] values = new double[size];
+        Field field = new Field();
+        for (int row = 0; row < size; row++) {
+            field.read(row, column.field());
+            values[row] = CsvTokenizer.parseDouble(field.bytes, field.start, field.end,
+                field.escaped);
+        }
+        return values;
+    }
+    
+    /**
+     * The contents of one field, copied out of the mapping and unquoted.
+     */
+    private final class Field {
+        
+        private byte[] bytes = new byte[64];
+        private int start;
+        private int end;
+        private boolean escaped;
+        
+        void read(int row, int field) {
+            int base = row * STRIDE + field;
+            int from = offsets[base];
+            // a field ends at the comma before the next one; the last ends where it was scanned to
+            int to = field == FIELDS - 1 ? offsets[base + 1] : offsets[base + 1] - 1;
+            int length = to - from;
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            data.get(from, bytes, 0, length);
+            escaped = false;
+            if (length == 0 || bytes[0] != '"') {
+                start = 0;
+                end = length;
+                return;
+            }
+            start = 1;
+            end = length;
+            for (int p = 1; p < length; p++) {
+                if (bytes[p] == '"') {
+                    if (p + 1 < length && bytes[p + 1] == '"') {
+                        escaped = true;
+                        p++;
+                    } else {
+                        end = p;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
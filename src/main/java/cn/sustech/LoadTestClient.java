@@ -0,0 +1,189 @@
+package cn.sustech;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for a {@link CourseServer}: a fixed number of workers each send
+ * a request, read the whole response, and send the next, for a fixed duration. The report
+ * gives the throughput and the latency percentiles, measured from sending a request to
+ * reading the last byte of its response.
+ */
+public final class LoadTestClient {
+    
+    /** The request mix used when no paths are given. */
+    static final List<String> DEFAULT_PATHS = List.of("/ptcpCountByInst",
+        "/ptcpCountByInstAndSubject", "/courses?topK=10&by=participants",
+        "/courses?topK=10&by=hours", "/search?subject=science&audited=20&hours=700",
+        "/search?subject=computer&audited=10&hours=1000", "/recommend?age=25&gender=1&degree=1",
+        "/recommend?age=40&gender=0&degree=0");
+    
+    private LoadTestClient() {
+    }
+    
+    /**.
+     *
+     * <p>Runs a load test.</p>
+     *
+     * @param base the server, such as {@code http://localhost:8080}
+     * @param paths the requests, each worker picking one at random per request
+     * @param concurrency the number of workers
+     * @param duration how long to send requests for
+     * @return the report
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static Report run(URI base, List<String> paths, int concurrency, Duration duration)
+        throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        List<HttpRequest> requests = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            requests.add(HttpRequest.newBuilder(base.resolve(path)).GET().build());
+        }
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        ExecutorService workers = CourseServer.newRequestExecutor();
+        try {
+            List<Future<?>> running = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                running.add(workers.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < end) {
+                        HttpRequest request = requests.get(random.nextInt(requests.size()));
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<InputStream> response =
+                                client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                            try (InputStream body = response.body()) {
+                                body.transferTo(OutputStream.nullOutputStream());
+                            }
+                            if (response.statusCode() != 200) {
+                                errors.increment();
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        latencies.record(System.nanoTime() - sent);
+                    }
+                }));
+            }
+            for (Future<?> worker : running) {
+                try {
+                    worker.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        return new Report(latencies.counts(), errors.sum(), System.nanoTime() - start);
+    }
+    
+    /**.
+     *
+     * <p>Runs a load test from the command line:
+     * {@code <base uri> [concurrency] [seconds] [path...]}, 64 workers for 30 seconds over
+     * {@link #DEFAULT_PATHS} by default.</p>
+     *
+     * @param args the server, concurrency, duration and paths
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println(
+                "usage: LoadTestClient <base uri> [concurrency] [seconds] [path...]");
+            System.exit(2);
+        }
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+        List<String> paths = args.length > 3
+            ? List.of(args).subList(3, args.length) : DEFAULT_PATHS;
+        System.out.println(run(URI.create(args[0]), paths, concurrency, duration));
+    }
+    
+    /**
+     * The outcome of a load test.
+     */
+    public static final class Report {
+        
+        private final LatencyHistogram.Counts latencies;
+        private final long errors;
+        private final long elapsedNanos;
+        
+        Report(LatencyHistogram.Counts latencies, long errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        /**.
+         *
+         * <p>The number of requests completed, failed ones included.</p>
+         *
+         * @return the request count
+         */
+        public long requests() {
+            return latencies.total();
+        }
+        
+        /**.
+         *
+         * <p>The number of requests that failed or did not get a 200.</p>
+         *
+         * @return the error count
+         */
+        public long errors() {
+            return errors;
+        }
+        
+        /**.
+         *
+         * <p>Completed requests per second.</p>
+         *
+         * @return the throughput
+         */
+        public double throughput() {
+            return latencies.total() * 1e9 / elapsedNanos;
+        }
+        
+        /**.
+         *
+         * <p>A latency percentile, to within 12.5%.</p>
+         *
+         * @param fraction the fraction of requests, from 0 to 1
+         * @return the latency
+         */
+        public Duration latency(double fraction) {
+            return Duration.ofNanos(latencies.percentile(fraction));
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("requests=%d errors=%d throughput=%.0f/s p50=%.3fms p90=%.3fms "
+                    + "p99=%.3fms p99.9=%.3fms max=%.3fms", requests(), errors, throughput(),
+                millis(0.5), millis(0.9), millis(0.99), millis(0.999), latencies.max() / 1e6);
+        }
+        
+        private double millis(double fraction) {
+            return latencies.percentile(fraction) / 1e6;
+        }
+    }
+}
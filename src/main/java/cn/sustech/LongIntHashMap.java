@@ -0,0 +1,130 @@
+package cn.sustech;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from primitive long keys to int values, without boxing.
+ *
+ * <p>Keys are kept in insertion order so that iterating the map is deterministic.</p>
+ */
+final class LongIntHashMap {
+    
+    private static final long EMPTY = Long.MIN_VALUE;
+    
+    private long[] keys;
+    private int[] slots;
+    private long[] orderedKeys;
+    private int[] values;
+    private int size;
+    
+    LongIntHashMap() {
+        this(16);
+    }
+    
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        slots = new int[capacity];
+        orderedKeys = new long[Math.max(4, expectedSize)];
+        values = new int[orderedKeys.length];
+    }
+    
+    /**.
+     *
+     * <p>Adds {@code delta} to the value of the key, inserting it with value 0 first.</p>
+     *
+     * @param key the key, anything but {@link Long#MIN_VALUE}
+     * @param delta the amount to add
+     * @return the entry index of the key
+     */
+    int addTo(long key, int delta) {
+        int index = indexOf(key, true);
+        values[index] += delta;
+        return index;
+    }
+    
+    /**.
+     *
+     * <p>Looks up the value of a key.</p>
+     *
+     * @param key the key
+     * @param defaultValue the value returned when the key is absent
+     * @return the value of the key
+     */
+    int get(long key, int defaultValue) {
+        int index = indexOf(key, false);
+        return index < 0 ? defaultValue : values[index];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**.
+     *
+     * <p>The key of an entry; entries are indexed from 0 in insertion order.</p>
+     *
+     * @param index the entry index
+     * @return the key of the entry
+     */
+    long keyAt(int index) {
+        return orderedKeys[index];
+    }
+    
+    int valueAt(int index) {
+        return values[index];
+    }
+    
+    long retainedBytes() {
+        return MemoryFootprint.array(keys.length, 8) + MemoryFootprint.array(slots.length, 4)
+            + MemoryFootprint.array(orderedKeys.length, 8)
+            + MemoryFootprint.array(values.length, 4);
+    }
+    
+    private int indexOf(long key, boolean insert) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slots[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!insert) {
+            return -1;
+        }
+        if (size == orderedKeys.length) {
+            orderedKeys = Arrays.copyOf(orderedKeys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[slot] = key;
+        slots[slot] = size;
+        orderedKeys[size] = key;
+        int index = size++;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+        return index;
+    }
+    
+    private void rehash() {
+        keys = new long[keys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        slots = new int[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = mix(orderedKeys[i]) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = orderedKeys[i];
+            slots[slot] = i;
+        }
+    }
+    
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
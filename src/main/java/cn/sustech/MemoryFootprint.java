@@ -0,0 +1,103 @@
+package cn.sustech;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Estimated heap retained by an analyzer, broken down by column and by index, for capacity
+ * planning.
+ *
+ * <p>Sizes are estimates with the same model as the weight of a {@link QueryCache}: 16 bytes
+ * per object or array header, 4 per reference, the elements of primitive arrays at their
+ * width, and 40 bytes plus two per character for a string. Arrays count at their capacity,
+ * which may exceed the number of rows after an append. Memory-mapped file contents are off
+ * heap and not counted.</p>
+ */
+public final class MemoryFootprint {
+    
+    private final int rows;
+    
+    private final Map<String, Long> columns;
+    
+    private final Map<String, Long> indexes;
+    
+    MemoryFootprint(int rows, Map<String, Long> columns, Map<String, Long> indexes) {
+        this.rows = rows;
+        this.columns = Collections.unmodifiableMap(new LinkedHashMap<>(columns));
+        this.indexes = Collections.unmodifiableMap(new LinkedHashMap<>(indexes));
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes of an array.</p>
+     *
+     * @param length the array length
+     * @param elementBytes the bytes of one element, 4 for references
+     * @return the estimated bytes
+     */
+    static long array(long length, int elementBytes) {
+        return 16 + length * elementBytes;
+    }
+    
+    /**.
+     *
+     * <p>The number of rows the footprint was taken with.</p>
+     *
+     * @return the row count
+     */
+    public int getRows() {
+        return rows;
+    }
+    
+    /**.
+     *
+     * <p>The bytes of each column, in file order: the column array, and for text columns the
+     * dictionary of distinct values. A column of a lazily loaded analyzer that was not parsed
+     * yet retains nothing.</p>
+     *
+     * @return the bytes by column name
+     */
+    public Map<String, Long> getColumns() {
+        return columns;
+    }
+    
+    /**.
+     *
+     * <p>The bytes of each index and derived structure; one that was not built yet retains
+     * nothing.</p>
+     *
+     * @return the bytes by index name
+     */
+    public Map<String, Long> getIndexes() {
+        return indexes;
+    }
+    
+    /**.
+     *
+     * <p>The bytes of all columns and indexes.</p>
+     *
+     * @return the total bytes
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long bytes : columns.values()) {
+            total += bytes;
+        }
+        for (long bytes : indexes.values()) {
+            total += bytes;
+        }
+        return total;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("rows=").append(rows).append(" total=").append(getTotal()).append('\n');
+        columns.forEach((name, bytes) -> sb.append("column ").append(name).append('=')
+            .append(bytes).append('\n'));
+        indexes.forEach((name, bytes) -> sb.append("index ").append(name).append('=')
+            .append(bytes).append('\n'));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package cn.sustech;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point-in-time copy of the {@link AnalyzerMetrics}: call statistics of every timed operation
+ * and the values of the counters.
+ */
+public final class MetricsSnapshot {
+    
+    private final List<OperationStats> operations;
+    
+    private final Map<String, Long> counters;
+    
+    MetricsSnapshot(List<OperationStats> operations, Map<String, Long> counters) {
+        this.operations = List.copyOf(operations);
+        this.counters = Collections.unmodifiableMap(new LinkedHashMap<>(counters));
+    }
+    
+    /**.
+     *
+     * <p>The statistics of every operation, in {@link AnalyzerMetrics.Operation} order.</p>
+     *
+     * @return the statistics
+     */
+    public List<OperationStats> getOperations() {
+        return operations;
+    }
+    
+    /**.
+     *
+     * <p>The statistics of one operation.</p>
+     *
+     * @param operation the operation
+     * @return the statistics
+     */
+    public OperationStats get(AnalyzerMetrics.Operation operation) {
+        return operations.get(operation.ordinal());
+    }
+    
+    /**.
+     *
+     * <p>The counter values by counter name, in {@link AnalyzerMetrics.Counter} order.</p>
+     *
+     * @return the counters
+     */
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (OperationStats stats : operations) {
+            if (stats.getCount() > 0) {
+                sb.append(stats).append('\n');
+            }
+        }
+        counters.forEach((name, value) -> sb.append(name).append('=').append(value).append('\n'));
+        return sb.toString();
+    }
+    
+    /**
+     * Call statistics of one operation. The getters make it an open type for the MXBean.
+     */
+    public static final class OperationStats {
+        
+        private final String name;
+        private final long count;
+        private final double meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final double allocatedBytesPerCall;
+        
+        OperationStats(String name, LatencyHistogram.Counts latency, long allocatedBytes) {
+            this.name = name;
+            this.count = latency.total();
+            this.meanNanos = latency.mean();
+            this.p50Nanos = latency.percentile(0.5);
+            this.p90Nanos = latency.percentile(0.9);
+            this.p99Nanos = latency.percentile(0.99);
+            this.maxNanos = latency.max();
+            this.allocatedBytesPerCall = count == 0 ? 0 : (double) allocatedBytes / count;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public double getMeanNanos() {
+            return meanNanos;
+        }
+        
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+        
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+        
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+        
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+        
+        /**.
+         *
+         * <p>The mean bytes allocated by the calling thread per call, or 0 when the JVM does
+         * not measure thread allocation.</p>
+         *
+         * @return the mean allocated bytes
+         */
+        public double getAllocatedBytesPerCall() {
+            return allocatedBytesPerCall;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s count=%d mean=%.0fns p50=%dns p90=%dns p99=%dns max=%dns "
+                    + "alloc=%.0fB/call", name, count, meanNanos, p50Nanos, p90Nanos, p99Nanos,
+                maxNanos, allocatedBytesPerCall);
+        }
+    }
+}
@@ -1,121 +1,440 @@
 package cn.sustech;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
+import static cn.sustech.CourseColumn.COURSE_TITLE;
+
+import cn.sustech.AnalyzerMetrics.Counter;
+import cn.sustech.AnalyzerMetrics.Operation;
+import cn.sustech.AnalyzerMetrics.Span;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 
 /**
  * class that analyse online courses.
  */
 public class OnlineCoursesAnalyzer {
     
-    /**
-     *</p>
-     * Record class for OnlineCourse which represents a course.
-     *
-     * @param institution online course holders
-     * @param courseNumber the unique id of each course
-     * @param launchDate the launch date of each course
-     * @param courseTitle the title of each course
-     * @param instructors the instructors of each course
-     * @param courseSubjects the subject of each course
-     * @param year the last time of each course
-     * @param honorCode the honor code
-     * @param participants the number of participants who have accessed the course
-     * @param audited the number of participants who have audited more than 50% of the course
-     * @param certified total number of votes
-     * @param auditedRate the percent of the audited
-     * @param certifiedRate the percent of the certified
-     * @param certifiedRate5 the percent of the certified with accessing the course more than 50%
-     * @param playedVideoRate the percent of playing video
-     * @param postedInForumRate the percent of posting in forum
-     * @param ght0Rate the percent of grade higher than zero
-     * @param totalCourseHours total course hours(per 1000)
-     * @param medianHours median hours for certification
-     * @param medianAge median age of the participants
-     * @param maleRate the percent of the male
-     * @param femaleRate the percent of the female
-     * @param bachelorsRate the percent of bachelor's degree of higher
+    /** The fewest rows or candidates a query task works on by default. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+    
+    private final CourseTable courses;
+    
+    private volatile CourseAggregates aggregates;
+    
+    // the csv all rows were loaded from, null once rows from anywhere else are appended
+    private volatile Path source;
+    
+    private volatile InstructorIndex instructorIndex;
+    
+    private volatile CourseProfiles courseProfiles;
+    
+    private volatile SearchIndex searchIndex;
+    
+    private volatile QueryCache queryCache;
+    
+    private volatile long version;
+    
+    private CourseFiles files;
+    
+    private volatile ForkJoinPool queryPool;
+    
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    
+    /**.
+     *
+     * <p>the default constructor of OnlineCoursesAnalyzer</p>
+     *
+     * @param datasetPath the data file (.csv file) path
+     * @throws IOException exception thrown when reading file
+     */
+    public OnlineCoursesAnalyzer(String datasetPath) throws IOException {
+        Span parse = AnalyzerMetrics.start(Operation.LOAD_PARSE);
+        courses = new CourseTable();
+        try (CsvTokenizer csv = new CsvTokenizer(new FileInputStream(datasetPath))) {
+            csv.next();
+            while (csv.next()) {
+                courses.add(csv);
+            }
+        } finally {
+            AnalyzerMetrics.stop(parse);
+        }
+        courses.trimToSize();
+        AnalyzerMetrics.count(Counter.ROWS_LOADED, courses.size());
+        aggregates = aggregate(courses, null);
+        source = Path.of(datasetPath);
+    }
+    
+    /**.
+     *
+     * <p>Loads the data file on the given pool: the file is memory-mapped, split into
+     * line-aligned chunks that are parsed in parallel, the rows are kept in file order and
+     * grouped for the participant totals in parallel too, so every query returns the same
+     * result as with the sequential constructor.</p>
+     *
+     * @param datasetPath the data file (.csv file) path
+     * @param pool the pool the file is parsed on
+     * @throws IOException exception thrown when reading file
      */
-    private record OnlineCourse(String institution, String courseNumber, Date launchDate,
-                                String courseTitle, String instructors, String courseSubjects,
-                                int year, int honorCode, int participants, int audited,
-                                int certified, double auditedRate, double certifiedRate,
-                                double certifiedRate5, double playedVideoRate,
-                                double postedInForumRate, double ght0Rate, double totalCourseHours,
-                                double medianHours, double medianAge, double maleRate,
-                                double femaleRate, double bachelorsRate) {
-        
-        @Override
-        public String toString() {
-            return "OnlineCourse{"
-                + "institution='" + institution + '\''
-                + ", courseNumber='" + courseNumber + '\''
-                + ", launchDate=" + launchDate
-                + ", courseTitle='" + courseTitle + '\''
-                + ", instructors=" + instructors
-                + ", courseSubjects=" + courseSubjects
-                + ", year=" + year
-                + ", isHonor=" + honorCode
-                + ", participants=" + participants
-                + ", audited=" + audited
-                + ", certified=" + certified
-                + ", auditedRate=" + auditedRate
-                + ", certifiedRate=" + certifiedRate
-                + ", certifiedRate5=" + certifiedRate5
-                + ", playedVideoRate=" + playedVideoRate
-                + ", postedInForumRate=" + postedInForumRate
-                + ", ght0Rate=" + ght0Rate
-                + ", totalCourseHours=" + totalCourseHours
-                + ", medianHours=" + medianHours
-                + ", medianAge=" + medianAge
-                + ", maleRate=" + maleRate
-                + ", femaleRate=" + femaleRate
-                + ", bachelorsRate=" + bachelorsRate
-                + '}';
+    public OnlineCoursesAnalyzer(String datasetPath, ForkJoinPool pool) throws IOException {
+        Span parse = AnalyzerMetrics.start(Operation.LOAD_PARSE);
+        try {
+            List<CourseTable> chunks = ParallelCsvLoader.load(Path.of(datasetPath), pool,
+                CourseTable::new, CourseTable::add);
+            courses = new CourseTable(chunks.stream().mapToInt(CourseTable::size).sum());
+            chunks.forEach(courses::addAll);
+        } finally {
+            AnalyzerMetrics.stop(parse);
         }
+        courses.trimToSize();
+        AnalyzerMetrics.count(Counter.ROWS_LOADED, courses.size());
+        aggregates = aggregate(courses, pool);
+        source = Path.of(datasetPath);
+    }
+    
+    private static CourseAggregates aggregate(CourseTable courses, ForkJoinPool pool) {
+        Span span = AnalyzerMetrics.start(Operation.LOAD_AGGREGATE);
+        try {
+            return CourseAggregates.of(courses, pool);
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    private OnlineCoursesAnalyzer(CourseSnapshot snapshot, Path source) {
+        this.courses = snapshot.table();
+        this.aggregates = snapshot.aggregates();
+        this.source = source;
     }
     
-    private final List<OnlineCourse> coursesList;
+    private OnlineCoursesAnalyzer(CourseTable courses, Path source) {
+        this.courses = courses;
+        this.source = source;
+    }
     
     /**.
      *
-     * <p>the default constructor of OnlineCoursesAnalyzer</p>
+     * <p>Loads the data file lazily: the file is memory-mapped and only split into rows and
+     * fields, and each column is parsed the first time a query reads it, then kept. A
+     * workload that reads a few columns starts faster and holds only those columns; the
+     * participant totals too are computed on first use. Every query returns the same result
+     * as with the eager constructors, but a malformed number or date is only reported by the
+     * first query that reads its column.</p>
+     *
+     * <p>The file must stay unchanged while columns remain unparsed, and must be smaller than
+     * 2GB.</p>
      *
      * @param datasetPath the data file (.csv file) path
+     * @return the analyzer
      * @throws IOException exception thrown when reading file
      */
-    public OnlineCoursesAnalyzer(String datasetPath) throws IOException {
-        coursesList = new ArrayList<>();
-        File file = new File(datasetPath);
-        BufferedReader reader = new BufferedReader(new FileReader(file));
-        reader.readLine();
-        for (String dataLine = reader.readLine(); dataLine != null; dataLine = reader.readLine()) {
-            String[] datas = dataLine.replace("\"", "").replace(", ", "##").split(",");
-            coursesList.add(new OnlineCourse(datas[0], datas[1], new Date(datas[2]),
-                datas[3].replace("##", ", "), datas[4].replace("##", ", "),
-                datas[5].replace("##", ", "), Integer.parseInt(datas[6]),
-                Integer.parseInt(datas[7]), Integer.parseInt(datas[8]), Integer.parseInt(datas[9]),
-                Integer.parseInt(datas[10]), Double.parseDouble(datas[11]),
-                Double.parseDouble(datas[12]), Double.parseDouble(datas[13]),
-                Double.parseDouble(datas[14]),
-                Double.parseDouble(datas[15]), Double.parseDouble(datas[16]),
-                Double.parseDouble(datas[17]), Double.parseDouble(datas[18]),
-                Double.parseDouble(datas[19]),
-                Double.parseDouble(datas[20]), Double.parseDouble(datas[21]),
-                Double.parseDouble(datas[22])));
+    public static OnlineCoursesAnalyzer lazy(String datasetPath) throws IOException {
+        Span parse = AnalyzerMetrics.start(Operation.LOAD_PARSE);
+        CourseTable courses;
+        try {
+            courses = new CourseTable(LazyColumns.scan(Path.of(datasetPath)));
+        } finally {
+            AnalyzerMetrics.stop(parse);
+        }
+        AnalyzerMetrics.count(Counter.ROWS_LOADED, courses.size());
+        return new OnlineCoursesAnalyzer(courses, Path.of(datasetPath));
+    }
+    
+    private CourseAggregates aggregates() {
+        CourseAggregates result = aggregates;
+        if (result == null) {
+            synchronized (this) {
+                result = aggregates;
+                if (result == null) {
+                    result = aggregate(courses, null);
+                    aggregates = result;
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**.
+     *
+     * <p>Loads an analyzer from a binary snapshot written by {@link #writeSnapshot(Path)},
+     * without parsing any csv.</p>
+     *
+     * @param snapshot the snapshot file
+     * @return the analyzer
+     * @throws IOException exception thrown when the snapshot cannot be read, or its version
+     *     or checksum does not match
+     */
+    public static OnlineCoursesAnalyzer fromSnapshot(Path snapshot) throws IOException {
+        return new OnlineCoursesAnalyzer(readSnapshot(snapshot), null);
+    }
+    
+    private static CourseSnapshot readSnapshot(Path snapshot) throws IOException {
+        Span span = AnalyzerMetrics.start(Operation.SNAPSHOT_READ);
+        try {
+            return CourseSnapshot.read(snapshot);
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Loads an analyzer from a binary snapshot of a csv file. When the snapshot is missing,
+     * unreadable, of another format version, or older than the csv (by size or modification
+     * time), the csv is parsed instead and the snapshot is rewritten for the next start.</p>
+     *
+     * @param snapshot the snapshot file
+     * @param datasetPath the data file (.csv file) the snapshot was taken of
+     * @return the analyzer
+     * @throws IOException exception thrown when reading the csv or writing the snapshot
+     */
+    public static OnlineCoursesAnalyzer fromSnapshot(Path snapshot, Path datasetPath)
+        throws IOException {
+        if (Files.exists(snapshot)) {
+            try {
+                CourseSnapshot loaded = readSnapshot(snapshot);
+                if (loaded.isCurrent(datasetPath)) {
+                    return new OnlineCoursesAnalyzer(loaded, datasetPath);
+                }
+            } catch (IOException e) {
+                // an unusable snapshot is rebuilt from the csv below
+            }
+        }
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(datasetPath.toString());
+        analyzer.writeSnapshot(snapshot);
+        return analyzer;
+    }
+    
+    /**.
+     *
+     * <p>Appends the course rows of another data file (.csv file with a header line) to the
+     * loaded ones. The participant totals are updated with the new rows only; the sorted
+     * views of the participant-count queries and the instructor and recommendation indexes
+     * are rebuilt on their next use, and the query cache is invalidated.</p>
+     *
+     * <p>An analyzer must not be queried by other threads while rows are appended; see
+     * {@link ConcurrentCoursesAnalyzer} for reloading data that other threads query.</p>
+     *
+     * @param datasetPath the data file (.csv file) path
+     * @return the number of rows appended
+     * @throws IOException exception thrown when reading file
+     */
+    public synchronized int append(String datasetPath) throws IOException {
+        Span span = AnalyzerMetrics.start(Operation.APPEND);
+        try {
+            CourseTable rows = new CourseTable();
+            try (CsvTokenizer csv = new CsvTokenizer(new FileInputStream(datasetPath))) {
+                csv.next();
+                while (csv.next()) {
+                    rows.add(csv);
+                }
+            }
+            appendRows(rows);
+            return rows.size();
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Loads an analyzer from several data files (.csv files with a header line): every
+     * {@code .csv} file of a directory, or the files matching a glob in the file name, such
+     * as {@code data/term-*.csv}. The files are read and parsed on the pool, one task per
+     * file, and their rows are kept in file name order. Rows of different files with the same
+     * course number and launch date are handled by the policy.</p>
+     *
+     * <p>The files are remembered, so that {@link #refresh()} can load the ones that are
+     * added or grow later.</p>
+     *
+     * @param pattern a directory, or a path whose file name is a glob
+     * @param duplicates what to do with rows loaded from several files
+     * @param pool the pool the files are loaded on
+     * @return the analyzer
+     * @throws IOException if a file cannot be read, or holds a duplicate under
+     *     {@link DuplicatePolicy#REJECT}
+     */
+    public static OnlineCoursesAnalyzer fromFiles(String pattern, DuplicatePolicy duplicates,
+        ForkJoinPool pool) throws IOException {
+        CourseFiles files = CourseFiles.of(pattern, duplicates, pool);
+        Span parse = AnalyzerMetrics.start(Operation.LOAD_PARSE);
+        CourseTable courses;
+        try {
+            courses = files.delta(new CourseTable());
+        } finally {
+            AnalyzerMetrics.stop(parse);
+        }
+        files.appended(courses, 0);
+        courses.trimToSize();
+        AnalyzerMetrics.count(Counter.ROWS_LOADED, courses.size());
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(courses, null);
+        analyzer.aggregates = aggregate(courses, pool);
+        analyzer.files = files;
+        return analyzer;
+    }
+    
+    /**.
+     *
+     * <p>Appends the rows of the data files that were added or grew since the analyzer was
+     * loaded with {@link #fromFiles} or last refreshed; unchanged files are recognized by
+     * their size and modification time and not read. A file that grew must still start with
+     * the bytes loaded before, and only its new records are parsed. The new rows are merged
+     * as {@link #append(String)} merges them, without rebuilding the loaded data.</p>
+     *
+     * <p>Loaded rows cannot be taken back, so a file that was removed or rewritten fails the
+     * refresh; {@link ConcurrentCoursesAnalyzer#publish} a newly loaded analyzer instead. A
+     * failed refresh appends nothing, and the next one retries it.</p>
+     *
+     * @return the number of rows appended
+     * @throws IOException if a file cannot be read, was removed or rewritten, or holds a
+     *     duplicate under {@link DuplicatePolicy#REJECT}
+     * @throws IllegalStateException if the analyzer was not loaded with {@link #fromFiles}
+     */
+    public synchronized int refresh() throws IOException {
+        if (files == null) {
+            throw new IllegalStateException("the analyzer was not loaded from several files");
+        }
+        Span span = AnalyzerMetrics.start(Operation.APPEND);
+        try {
+            CourseTable rows = files.delta(courses);
+            appendRows(rows);
+            return rows.size();
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    private void appendRows(CourseTable rows) {
+        AnalyzerMetrics.count(Counter.ROWS_LOADED, rows.size());
+        int from = courses.size();
+        courses.addAll(rows);
+        if (files != null) {
+            files.appended(courses, from);
+        }
+        aggregates().add(courses, from, courses.size());
+        source = null;
+        instructorIndex = null;
+        courseProfiles = null;
+        searchIndex = null;
+        version++;
+    }
+    
+    /**.
+     *
+     * <p>Estimates the heap the analyzer retains, by column and by index, without parsing
+     * unparsed columns or building missing indexes. The query cache is not included, as it
+     * may be shared; its own bound limits it.</p>
+     *
+     * @return the footprint
+     */
+    public MemoryFootprint memoryFootprint() {
+        Map<String, Long> columns = new LinkedHashMap<>();
+        for (CourseColumn column : CourseColumn.values()) {
+            columns.put(column.name(), courses.retainedBytes(column));
+        }
+        CourseAggregates totals = aggregates;
+        InstructorIndex instructors = instructorIndex;
+        SearchIndex search = searchIndex;
+        CourseProfiles profiles = courseProfiles;
+        Map<String, Long> indexes = new LinkedHashMap<>();
+        indexes.put("unparsedRows", courses.unparsedBytes());
+        indexes.put("aggregates", totals == null ? 0 : totals.retainedBytes());
+        indexes.put("instructorIndex", instructors == null ? 0 : instructors.retainedBytes());
+        indexes.put("searchIndex", search == null ? 0 : search.retainedBytes());
+        indexes.put("courseProfiles", profiles == null ? 0 : profiles.retainedBytes());
+        return new MemoryFootprint(courses.size(), columns, indexes);
+    }
+    
+    /**.
+     *
+     * <p>Caches the results of {@link #getCourses(int, CourseMetric)},
+     * {@link #searchCourses(String, double, double)} and
+     * {@link #recommendCourses(int, int, int)}, which then return unmodifiable lists. The
+     * cache is invalidated whenever rows are appended.</p>
+     *
+     * @param cache the cache, or null to stop caching
+     */
+    public void setQueryCache(QueryCache cache) {
+        queryCache = cache;
+    }
+    
+    /**.
+     *
+     * <p>Runs {@link #getCourses(int, CourseMetric)},
+     * {@link #searchCourses(String, double, double, LocalDate, LocalDate)} and
+     * {@link #recommendCourses} on a pool once their input reaches twice
+     * {@link #DEFAULT_PARALLEL_THRESHOLD} rows or candidates. Results are identical to the
+     * sequential ones, ties and order included. Queries run sequentially by default.</p>
+     *
+     * @param pool the pool, or null to run queries sequentially
+     */
+    public void setQueryPool(ForkJoinPool pool) {
+        setQueryPool(pool, DEFAULT_PARALLEL_THRESHOLD);
+    }
+    
+    /**.
+     *
+     * <p>Runs queries on a pool as {@link #setQueryPool(ForkJoinPool)} does, with the fewest
+     * rows or candidates each task works on. Inputs smaller than twice the threshold run
+     * sequentially on the calling thread.</p>
+     *
+     * @param pool the pool, or null to run queries sequentially
+     * @param threshold the fewest rows or candidates per task
+     */
+    public void setQueryPool(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        parallelThreshold = threshold;
+        queryPool = pool;
+    }
+    
+    private List<String> cached(List<Object> key, Supplier<List<String>> query) {
+        QueryCache cache = queryCache;
+        return cache == null ? query.get() : cache.get(version, key, query);
+    }
+    
+    /**.
+     *
+     * <p>Builds every index and view the queries otherwise build on first use, so that no
+     * later query waits on a build.</p>
+     */
+    void buildIndexes() {
+        instructorIndex();
+        courseProfiles();
+        searchIndex();
+        aggregates().institutionView(courses);
+        aggregates().institutionSubjectView(courses);
+    }
+    
+    /**.
+     *
+     * <p>Writes the loaded columns, dictionaries and aggregates to a binary snapshot that
+     * {@link #fromSnapshot(Path)} can load.</p>
+     *
+     * @param snapshot the snapshot file
+     * @throws IOException exception thrown when writing file
+     */
+    public void writeSnapshot(Path snapshot) throws IOException {
+        Span span = AnalyzerMetrics.start(Operation.SNAPSHOT_WRITE);
+        try {
+            CourseSnapshot.write(snapshot, courses, aggregates(), source);
+        } finally {
+            AnalyzerMetrics.stop(span);
         }
     }
     
@@ -128,12 +447,12 @@ public class OnlineCoursesAnalyzer {
      * @return the map of participants count by Institution
      */
     public Map<String, Integer> getPtcpCountByInst() {
-        return this.coursesList.stream()
-            .sorted(Comparator.comparing(OnlineCourse::institution))
-            .collect(
-                Collectors.toMap(OnlineCourse::institution, OnlineCourse::participants,
-                    Integer::sum, LinkedHashMap::new)
-            );
+        Span span = AnalyzerMetrics.start(Operation.PTCP_COUNT_BY_INST);
+        try {
+            return new LinkedHashMap<>(aggregates().institutionView(courses));
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
     }
     
     /**
@@ -146,17 +465,12 @@ public class OnlineCoursesAnalyzer {
      * @return the map of participants count by Institution and course subject
      */
     public Map<String, Integer> getPtcpCountByInstAndSubject() {
-        return this.coursesList.stream()
-            .collect(Collectors.groupingBy(oc -> oc.institution() + "-" + oc.courseSubjects(),
-                Collectors.summingInt(OnlineCourse::participants)))
-            .entrySet()
-            .stream()
-            .sorted(Comparator.comparing(Map.Entry<String, Integer>::getValue).reversed()
-                .thenComparing(Map.Entry::getKey))
-            .collect(
-                Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a,
-                    LinkedHashMap::new)
-            );
+        Span span = AnalyzerMetrics.start(Operation.PTCP_COUNT_BY_INST_AND_SUBJECT);
+        try {
+            return new LinkedHashMap<>(aggregates().institutionSubjectView(courses));
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
     }
     
     /**
@@ -167,25 +481,191 @@ public class OnlineCoursesAnalyzer {
      * @return the map of course list by instructor
      */
     public Map<String, List<List<String>>> getCourseListOfInstructor() {
-        Set<String> instructors = new HashSet<>();
-        this.coursesList.stream().map(OnlineCourse::instructors).forEach(s -> instructors.addAll(
-            Arrays.asList(s.replace("and ", "").replace(", ", ",").split(","))));
-        Map<String, List<List<String>>> result = new HashMap<>();
-        
-        instructors.stream().distinct().forEach(s -> result.put(s, new ArrayList<>()));
-        instructors.stream().distinct().forEach(
-            s -> result.get(s).add(
-                this.coursesList.stream().filter(oc -> oc.instructors().equals(s))
-                    .map(OnlineCourse::courseTitle).distinct().sorted()
-                    .collect(Collectors.toList()))
-        );
-        instructors.stream().distinct().forEach(
-            s -> result.get(s).add(this.coursesList.stream().filter(
-                    oc -> (!oc.instructors().equals(s)) && (", " + oc.instructors()
-                        .replace("and ", "")).contains(", " + s)).map(OnlineCourse::courseTitle)
-                .distinct().sorted().collect(Collectors.toList()))
-        );
-        return result;
+        Span span = AnalyzerMetrics.start(Operation.COURSE_LIST_OF_INSTRUCTOR);
+        try {
+            return instructorIndex().toMap(courses.dictionary(COURSE_TITLE));
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Streams the result of {@link #getPtcpCountByInst()} to the action, in the same
+     * order, without building the map.</p>
+     *
+     * @param action receives each institution and its participant count
+     */
+    public void forEachPtcpCountByInst(ObjIntConsumer<String> action) {
+        Span span = AnalyzerMetrics.start(Operation.PTCP_COUNT_BY_INST);
+        try {
+            aggregates().forEachInstitution(courses, action);
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Streams the result of {@link #getPtcpCountByInstAndSubject()} to the action, in the
+     * same order, without building the map: only the totals of the institution-subject pairs
+     * are sorted, and each key string is built right before it is passed on.</p>
+     *
+     * @param action receives each "institution-subject" key and its participant count
+     */
+    public void forEachPtcpCountByInstAndSubject(ObjIntConsumer<String> action) {
+        Span span = AnalyzerMetrics.start(Operation.PTCP_COUNT_BY_INST_AND_SUBJECT);
+        try {
+            aggregates().forEachInstitutionSubject(courses, action);
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Streams the result of {@link #getCourseListOfInstructor()} to the action, one
+     * instructor at a time in alphabetical order. The title lists are views over the
+     * instructor index, so nothing is copied per instructor.</p>
+     *
+     * @param action receives the courses of each instructor
+     */
+    public void forEachCourseListOfInstructor(InstructorCourses action) {
+        Span span = AnalyzerMetrics.start(Operation.COURSE_LIST_OF_INSTRUCTOR);
+        try {
+            instructorIndex().forEach(courses.dictionary(COURSE_TITLE), action);
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Writes the result of {@link #getPtcpCountByInst()} to a stream, in the same order:
+     * csv records of {@code institution,participants}, or a JSON object. The stream is
+     * flushed but not closed.</p>
+     *
+     * @param out the stream to write UTF-8 to
+     * @param format the format to write
+     * @throws IOException exception thrown when writing
+     */
+    public void writePtcpCountByInst(OutputStream out, ResultFormat format) throws IOException {
+        writeCounts(out, format, "institution", this::forEachPtcpCountByInst);
+    }
+    
+    /**.
+     *
+     * <p>Writes the result of {@link #getPtcpCountByInstAndSubject()} to a stream, in the
+     * same order: csv records of {@code institutionAndSubject,participants}, or a JSON
+     * object. The stream is flushed but not closed.</p>
+     *
+     * @param out the stream to write UTF-8 to
+     * @param format the format to write
+     * @throws IOException exception thrown when writing
+     */
+    public void writePtcpCountByInstAndSubject(OutputStream out, ResultFormat format)
+        throws IOException {
+        writeCounts(out, format, "institutionAndSubject", this::forEachPtcpCountByInstAndSubject);
+    }
+    
+    /**.
+     *
+     * <p>Writes the result of {@link #getCourseListOfInstructor()} to a stream, instructors
+     * in alphabetical order: csv records of {@code instructor,kind,title}, one per title with
+     * kind {@code solo} or {@code coDeveloped}, or a JSON object mapping each instructor to
+     * its two title lists. The stream is flushed but not closed.</p>
+     *
+     * @param out the stream to write UTF-8 to
+     * @param format the format to write
+     * @throws IOException exception thrown when writing
+     */
+    public void writeCourseListOfInstructor(OutputStream out, ResultFormat format)
+        throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+            1 << 13);
+        try {
+            if (format == ResultFormat.CSV) {
+                CsvWriter csv = new CsvWriter(writer);
+                csv.field("instructor").field("kind").field("title").endRecord();
+                forEachCourseListOfInstructor((instructor, solo, coDeveloped) -> {
+                    try {
+                        for (String title : solo) {
+                            csv.field(instructor).field("solo").field(title).endRecord();
+                        }
+                        for (String title : coDeveloped) {
+                            csv.field(instructor).field("coDeveloped").field(title).endRecord();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } else {
+                JsonWriter json = new JsonWriter(writer).beginObject();
+                forEachCourseListOfInstructor((instructor, solo, coDeveloped) -> {
+                    try {
+                        json.name(instructor).beginArray().strings(solo).strings(coDeveloped)
+                            .endArray();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.endObject();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+    
+    private static void writeCounts(OutputStream out, ResultFormat format, String keyColumn,
+        Consumer<ObjIntConsumer<String>> counts) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+            1 << 13);
+        try {
+            if (format == ResultFormat.CSV) {
+                CsvWriter csv = new CsvWriter(writer);
+                csv.field(keyColumn).field("participants").endRecord();
+                counts.accept((key, count) -> {
+                    try {
+                        csv.field(key).field(count).endRecord();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } else {
+                JsonWriter json = new JsonWriter(writer).beginObject();
+                counts.accept((key, count) -> {
+                    try {
+                        json.name(key).value(count);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                json.endObject();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+    
+    private InstructorIndex instructorIndex() {
+        InstructorIndex index = instructorIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = instructorIndex;
+                if (index == null) {
+                    Span span = AnalyzerMetrics.start(Operation.INSTRUCTOR_INDEX_BUILD);
+                    try {
+                        index = InstructorIndex.build(courses);
+                    } finally {
+                        AnalyzerMetrics.stop(span);
+                    }
+                    instructorIndex = index;
+                }
+            }
+        }
+        return index;
     }
     
     /**
@@ -195,22 +675,36 @@ public class OnlineCoursesAnalyzer {
      * of Total Course Hours (Thousands) (from the longest course to the shortest course).</p>
      * <p>by="participants": the results should be courses sorted by descending order
      * of the number of the Participants (Course Content Accessed) (from the most to the least).</p>
+     * <p>Other criteria are looked up with {@link CourseMetric#of(String)}.</p>
      *
      * @param topK the top K courses
      * @param by the given criterion
      * @return the list of top courses
      */
     public List<String> getCourses(int topK, String by) {
-        if (by.equals("hours")) {
-            return this.coursesList.stream().sorted(
-                    Comparator.comparingDouble(OnlineCourse::totalCourseHours).reversed()
-                        .thenComparing(OnlineCourse::courseTitle)).map(OnlineCourse::courseTitle)
-                .distinct().limit(topK).collect(Collectors.toList());
-        } else {
-            return this.coursesList.stream().sorted(
-                    Comparator.comparingInt(OnlineCourse::participants).reversed()
-                        .thenComparing(OnlineCourse::courseTitle)).map(OnlineCourse::courseTitle)
-                .distinct().limit(topK).collect(Collectors.toList());
+        return getCourses(topK, CourseMetric.of(by));
+    }
+    
+    /**
+     *
+     * <p>This method returns the top K courses by the given metric: distinct course titles
+     * sorted by descending value of the metric, then by title. A title that appears in
+     * several rows is ranked by its highest value.</p>
+     *
+     * @param topK the top K courses
+     * @param by the metric to rank by
+     * @return the list of top courses
+     */
+    public List<String> getCourses(int topK, CourseMetric by) {
+        Span span = AnalyzerMetrics.start(Operation.GET_COURSES);
+        try {
+            return cached(List.of("getCourses", topK, by), () -> {
+                AnalyzerMetrics.count(Counter.ROWS_SCANNED, courses.size());
+                return TopKSelector.select(courses, by.column(), topK, queryPool,
+                    parallelThreshold);
+            });
+        } finally {
+            AnalyzerMetrics.stop(span);
         }
     }
     
@@ -230,35 +724,59 @@ public class OnlineCoursesAnalyzer {
      */
     public List<String> searchCourses(String courseSubject, double percentAudited,
         double totalCourseHours) {
-        return this.coursesList.stream()
-            .filter(oc -> oc.courseSubjects().toLowerCase().contains(courseSubject.toLowerCase())
-                && oc.auditedRate() >= percentAudited
-                && oc.totalCourseHours() <= totalCourseHours)
-            .map(OnlineCourse::courseTitle)
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
-    }
-    
-    private double calculateSimilarityValue(int age, int gender, int isBachelorOrHigher,
-        OnlineCourse course) {
-        
-        List<Double> values = this.coursesList.stream()
-            .filter(oc -> oc.courseNumber().equals(course.courseNumber()))
-            .collect(Collectors.collectingAndThen(Collectors.toList(), m -> {
-                List<Double> list = new ArrayList<>();
-                
-                list.add(m.stream().collect(Collectors.summarizingDouble(OnlineCourse::medianAge))
-                    .getAverage());
-                list.add(m.stream().collect(Collectors.summarizingDouble(OnlineCourse::maleRate))
-                    .getAverage());
-                list.add(
-                    m.stream().collect(Collectors.summarizingDouble(OnlineCourse::bachelorsRate))
-                        .getAverage());
-                return list;
-            }));
-        return Math.pow(age - values.get(0), 2) + Math.pow(gender * 100 - values.get(1), 2)
-            + Math.pow(isBachelorOrHigher * 100 - values.get(2), 2);
+        return searchCourses(courseSubject, percentAudited, totalCourseHours, null, null);
+    }
+    
+    /**.
+     *
+     * <p>Searches courses as {@link #searchCourses(String, double, double)} does, keeping only
+     * the rows launched between two dates. The launch dates are answered from a sorted index,
+     * so a narrow date range is found without scanning other rows.</p>
+     *
+     * @param courseSubject the specified course subject
+     * @param percentAudited the percent of the audited
+     * @param totalCourseHours the total course hours
+     * @param launchedFrom the earliest launch date, inclusive, or null for no lower bound
+     * @param launchedTo the latest launch date, inclusive, or null for no upper bound
+     * @return the list of courses
+     */
+    public List<String> searchCourses(String courseSubject, double percentAudited,
+        double totalCourseHours, LocalDate launchedFrom, LocalDate launchedTo) {
+        int from = launchedFrom == null ? Integer.MIN_VALUE : epochDay(launchedFrom);
+        int to = launchedTo == null ? Integer.MAX_VALUE : epochDay(launchedTo);
+        Span span = AnalyzerMetrics.start(Operation.SEARCH_COURSES);
+        try {
+            return cached(List.of("searchCourses", courseSubject, percentAudited, totalCourseHours,
+                    from, to),
+                () -> searchIndex().search(courses, courseSubject, percentAudited,
+                    totalCourseHours, from, to, queryPool, parallelThreshold));
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    private static int epochDay(LocalDate date) {
+        long day = date.toEpochDay();
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, day));
+    }
+    
+    private SearchIndex searchIndex() {
+        SearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    Span span = AnalyzerMetrics.start(Operation.SEARCH_INDEX_BUILD);
+                    try {
+                        index = SearchIndex.build(courses);
+                    } finally {
+                        AnalyzerMetrics.stop(span);
+                    }
+                    searchIndex = index;
+                }
+            }
+        }
+        return index;
     }
     
     /**.
@@ -271,18 +789,57 @@ public class OnlineCoursesAnalyzer {
      * @return the list of recommends 10 courses
      */
     public List<String> recommendCourses(int age, int gender, int isBachelorOrHigher) {
-        Map<String, Date> launchDateMap = this.coursesList.stream().collect(
-            Collectors.toMap(OnlineCourse::courseNumber, OnlineCourse::launchDate,
-                (a, b) -> a.after(b) ? a : b));
-        return this.coursesList.stream()
-            .filter(oc -> oc.launchDate().equals(launchDateMap.get(oc.courseNumber())))
-            .sorted(Comparator.comparingDouble(
-                    (OnlineCourse a) -> calculateSimilarityValue(age, gender, isBachelorOrHigher, a)
-                ).thenComparing(OnlineCourse::courseTitle))
-            .map(OnlineCourse::courseTitle)
-            .distinct()
-            .limit(10)
-            .collect(Collectors.toList());
+        Span span = AnalyzerMetrics.start(Operation.RECOMMEND_COURSES);
+        try {
+            return cached(List.of("recommendCourses", age, gender, isBachelorOrHigher),
+                () -> courseProfiles().recommend(age, gender, isBachelorOrHigher, 10,
+                    courses.dictionary(COURSE_TITLE), queryPool, parallelThreshold));
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
     }
     
+    /**.
+     *
+     * <p>Recommends 10 courses to each of many users at once. The users are given as
+     * parallel arrays, and the list of each user is exactly what
+     * {@link #recommendCourses(int, int, int)} returns for them, ties included.</p>
+     *
+     * @param ages age of each user
+     * @param genders 0-female, 1-male, for each user
+     * @param degrees 0-Not get bachelor degree, 1- Bachelor degree or higher, for each user
+     * @return the list of recommends 10 courses of each user, in user order
+     */
+    public List<List<String>> recommendCourses(int[] ages, int[] genders, int[] degrees) {
+        if (ages.length != genders.length || ages.length != degrees.length) {
+            throw new IllegalArgumentException("ages, genders and degrees differ in length");
+        }
+        Span span = AnalyzerMetrics.start(Operation.RECOMMEND_COURSES);
+        try {
+            return courseProfiles().recommend(ages, genders, degrees, 10,
+                courses.dictionary(COURSE_TITLE), queryPool, parallelThreshold);
+        } finally {
+            AnalyzerMetrics.stop(span);
+        }
+    }
+    
+    private CourseProfiles courseProfiles() {
+        CourseProfiles profiles = courseProfiles;
+        if (profiles == null) {
+            synchronized (this) {
+                profiles = courseProfiles;
+                if (profiles == null) {
+                    Span span = AnalyzerMetrics.start(Operation.COURSE_PROFILES_BUILD);
+                    try {
+                        profiles = CourseProfiles.build(courses);
+                    } finally {
+                        AnalyzerMetrics.stop(span);
+                    }
+                    courseProfiles = profiles;
+                }
+            }
+        }
+        return profiles;
+    }
+
 }
@@ -0,0 +1,237 @@
+package cn.sustech;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Memory-mapped csv loader that parses line-aligned chunks of a file in parallel.
+ *
+ * <p>The file is cut into roughly equal chunks whose boundaries are moved forward to the next
+ * line break that is not inside a quoted field. The quote state at each tentative boundary is
+ * known from the parity of the quote characters before it, which is counted per chunk in
+ * parallel first. Every chunk is then tokenized on its own into an accumulator, and the
+ * accumulators are returned in file order.</p>
+ */
+final class ParallelCsvLoader {
+    
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    private static final int SCAN_WINDOW = 1 << 16;
+    
+    private ParallelCsvLoader() {
+    }
+    
+    /**.
+     *
+     * <p>Parses every record after the header line of the file.</p>
+     *
+     * @param path the csv file
+     * @param pool the pool the chunks are parsed on
+     * @param accumulator creates the accumulator of one chunk
+     * @param rowHandler consumes one record into the accumulator of its chunk
+     * @param <A> the accumulator type
+     * @return the chunk accumulators in file order
+     * @throws IOException exception thrown when reading file
+     */
+    static <A> List<A> load(Path path, ForkJoinPool pool, Supplier<A> accumulator,
+        BiConsumer<A, CsvTokenizer> rowHandler) throws IOException {
+        return load(path, pool, accumulator, rowHandler, MIN_CHUNK_SIZE);
+    }
+    
+    static <A> List<A> load(Path path, ForkJoinPool pool, Supplier<A> accumulator,
+        BiConsumer<A, CsvTokenizer> rowHandler, long minChunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return load(channel, 0, channel.size(), true, pool, accumulator, rowHandler,
+                minChunkSize);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Parses the records in a byte range of an open file.</p>
+     *
+     * @param channel the csv file
+     * @param start the offset of the first record, or of the header line
+     * @param end the offset after the last record
+     * @param header whether the range starts with a header line to skip
+     * @param pool the pool the chunks are parsed on
+     * @param accumulator creates the accumulator of one chunk
+     * @param rowHandler consumes one record into the accumulator of its chunk
+     * @param <A> the accumulator type
+     * @return the chunk accumulators in file order
+     * @throws IOException exception thrown when reading file
+     */
+    static <A> List<A> load(FileChannel channel, long start, long end, boolean header,
+        ForkJoinPool pool, Supplier<A> accumulator, BiConsumer<A, CsvTokenizer> rowHandler)
+        throws IOException {
+        return load(channel, start, end, header, pool, accumulator, rowHandler, MIN_CHUNK_SIZE);
+    }
+    
+    private static <A> List<A> load(FileChannel channel, long start, long end, boolean header,
+        ForkJoinPool pool, Supplier<A> accumulator, BiConsumer<A, CsvTokenizer> rowHandler,
+        long minChunkSize) throws IOException {
+        long size = end - start;
+        int chunks = chunkCount(size, pool.getParallelism(), minChunkSize);
+        long[] tentative = new long[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            tentative[i] = start + size * i / chunks;
+        }
+        
+        List<Callable<Boolean>> parityTasks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            long from = tentative[i];
+            long to = tentative[i + 1];
+            parityTasks.add(() -> quoteParity(channel, from, to));
+        }
+        List<Boolean> parities = invokeAll(pool, parityTasks);
+        
+        List<Callable<Long>> boundaryTasks = new ArrayList<>();
+        boolean inQuote = false;
+        for (int i = 1; i < chunks; i++) {
+            inQuote ^= parities.get(i - 1);
+            long from = tentative[i];
+            boolean quoted = inQuote;
+            boundaryTasks.add(() -> nextRecordStart(channel, from, quoted, end));
+        }
+        List<Long> found = invokeAll(pool, boundaryTasks);
+        long[] boundaries = new long[chunks + 1];
+        boundaries[0] = start;
+        boundaries[chunks] = end;
+        for (int i = 1; i < chunks; i++) {
+            boundaries[i] = Math.max(boundaries[i - 1], found.get(i - 1));
+        }
+        
+        List<Callable<A>> parseTasks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            long from = boundaries[i];
+            long to = boundaries[i + 1];
+            boolean skipHeader = header && i == 0;
+            parseTasks.add(() -> {
+                A acc = accumulator.get();
+                if (from < to) {
+                    CsvTokenizer csv = new CsvTokenizer(map(channel, from, to - from));
+                    if (skipHeader) {
+                        csv.next();
+                    }
+                    while (csv.next()) {
+                        rowHandler.accept(acc, csv);
+                    }
+                }
+                return acc;
+            });
+        }
+        return invokeAll(pool, parseTasks);
+    }
+    
+    private static int chunkCount(long size, int parallelism, long minChunkSize) {
+        long byMinimum = Math.max(1, size / minChunkSize);
+        long byMaximum = (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE;
+        long chunks = Math.min(byMinimum, (long) parallelism * CHUNKS_PER_THREAD);
+        return (int) Math.max(chunks, byMaximum);
+    }
+    
+    private static MappedByteBuffer map(FileChannel channel, long from, long length)
+        throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+    }
+    
+    private static boolean quoteParity(FileChannel channel, long from, long to)
+        throws IOException {
+        if (from >= to) {
+            return false;
+        }
+        ByteBuffer region = map(channel, from, to - from);
+        byte[] window = new byte[SCAN_WINDOW];
+        boolean odd = false;
+        while (region.hasRemaining()) {
+            int n = Math.min(window.length, region.remaining());
+            region.get(window, 0, n);
+            for (int i = 0; i < n; i++) {
+                if (window[i] == '"') {
+                    odd = !odd;
+                }
+            }
+        }
+        return odd;
+    }
+    
+    /**.
+     *
+     * <p>Finds the first position after {@code from} that follows a line break outside of
+     * quotes.</p>
+     *
+     * @param inQuote whether {@code from} is inside a quoted field
+     * @return the start of the next record, or {@code size} if there is none
+     */
+    private static long nextRecordStart(FileChannel channel, long from, boolean inQuote,
+        long size) throws IOException {
+        byte[] window = new byte[SCAN_WINDOW];
+        long position = from;
+        while (position < size) {
+            int n = (int) Math.min(window.length, size - position);
+            map(channel, position, n).get(window, 0, n);
+            for (int i = 0; i < n; i++) {
+                if (window[i] == '"') {
+                    inQuote = !inQuote;
+                } else if (window[i] == '\n' && !inQuote) {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return size;
+    }
+    
+    /**.
+     *
+     * <p>Runs the tasks on the pool and returns their results in task order, rethrowing the
+     * first failure.</p>
+     */
+    static <T> List<T> invokeAll(ForkJoinPool pool, List<Callable<T>> tasks)
+        throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while loading", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // the pool wraps the checked exceptions of a callable in plain RuntimeExceptions,
+            // once more when rethrowing them on another thread
+            while (cause.getClass() == RuntimeException.class && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+        return results;
+    }
+}
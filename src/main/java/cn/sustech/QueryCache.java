@@ -0,0 +1,250 @@
+package cn.sustech;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of query results, keyed by the query method and its arguments.
+ *
+ * <p>The cache is split into segments by key hash, each an access-ordered
+ * {@link LinkedHashMap} guarded by its own lock that evicts its least recently used entries
+ * once it is over its share of the bound. Small caches have one segment and so evict in exact
+ * LRU order. The bound is either a number of entries or an
+ * estimated weight in bytes of the keys and results.</p>
+ *
+ * <p>Every lookup carries the version of the dataset it queries. A newer version empties the
+ * cache, and lookups for an older version are computed without touching it. Each entry also
+ * keeps the version it was computed on and only answers lookups for that version, so a
+ * lookup racing the emptying of the segments still never gets a result computed from other
+ * data. Cached results are
+ * unmodifiable, as they are shared between callers. A cache serves one analyzer.</p>
+ */
+public final class QueryCache {
+    
+    private static final int SEGMENTS = 16;
+    
+    private static final int MIN_SEGMENT_ENTRIES = 256;
+    
+    private static final int MIN_SEGMENT_BYTES = 1 << 16;
+    
+    private final Segment[] segments;
+    
+    private final boolean byWeight;
+    
+    private final LongAdder hits = new LongAdder();
+    
+    private final LongAdder misses = new LongAdder();
+    
+    private final LongAdder evictions = new LongAdder();
+    
+    private volatile long version;
+    
+    private QueryCache(long bound, boolean byWeight) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException(Long.toString(bound));
+        }
+        this.byWeight = byWeight;
+        int count = (int) Math.max(1, Math.min(SEGMENTS,
+            bound / (byWeight ? MIN_SEGMENT_BYTES : MIN_SEGMENT_ENTRIES)));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment((bound + count - 1) / count);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Creates a cache holding at most {@code maxEntries} results.</p>
+     *
+     * @param maxEntries the maximum number of results
+     * @return the cache
+     */
+    public static QueryCache ofEntries(int maxEntries) {
+        return new QueryCache(maxEntries, false);
+    }
+    
+    /**.
+     *
+     * <p>Creates a cache whose keys and results weigh at most about {@code maxBytes}, as
+     * estimated from their string lengths and list sizes.</p>
+     *
+     * @param maxBytes the maximum estimated weight
+     * @return the cache
+     */
+    public static QueryCache ofBytes(long maxBytes) {
+        return new QueryCache(maxBytes, true);
+    }
+    
+    /**.
+     *
+     * <p>Returns the cached result of a query, computing and caching it on a miss. Two
+     * threads missing the same key at once may both compute it.</p>
+     *
+     * @param version the version of the dataset the query runs on
+     * @param key the query method and arguments
+     * @param query computes the result
+     * @return the unmodifiable result
+     */
+    List<String> get(long version, List<Object> key, Supplier<List<String>> query) {
+        if (version > this.version) {
+            invalidate(version);
+        }
+        if (version != this.version) {
+            misses.increment();
+            AnalyzerMetrics.count(AnalyzerMetrics.Counter.CACHE_MISSES, 1);
+            return List.copyOf(query.get());
+        }
+        Segment segment = segments[Math.floorMod(key.hashCode(), segments.length)];
+        List<String> result = segment.get(version, key);
+        if (result != null) {
+            hits.increment();
+            AnalyzerMetrics.count(AnalyzerMetrics.Counter.CACHE_HITS, 1);
+            return result;
+        }
+        misses.increment();
+        AnalyzerMetrics.count(AnalyzerMetrics.Counter.CACHE_MISSES, 1);
+        result = List.copyOf(query.get());
+        segment.put(version, key, result, byWeight ? weigh(key) + weigh(result) : 1);
+        return result;
+    }
+    
+    private synchronized void invalidate(long newVersion) {
+        if (newVersion > version) {
+            version = newVersion;
+            for (Segment segment : segments) {
+                segment.clear();
+            }
+        }
+    }
+    
+    /**.
+     *
+     * <p>The number of lookups answered from the cache.</p>
+     *
+     * @return the hit count
+     */
+    public long hits() {
+        return hits.sum();
+    }
+    
+    /**.
+     *
+     * <p>The number of lookups that computed their result.</p>
+     *
+     * @return the miss count
+     */
+    public long misses() {
+        return misses.sum();
+    }
+    
+    /**.
+     *
+     * <p>The number of results evicted to stay within the bound. Results dropped because the
+     * dataset changed are not counted.</p>
+     *
+     * @return the eviction count
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+    
+    /**.
+     *
+     * <p>The number of cached results.</p>
+     *
+     * @return the entry count
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+    
+    /**.
+     *
+     * <p>The estimated weight in bytes of a key or result: object headers, references and
+     * two bytes per character.</p>
+     */
+    static long weigh(Object value) {
+        if (value instanceof String string) {
+            return 40 + 2L * string.length();
+        }
+        if (value instanceof List<?> list) {
+            long weight = 16 + 4L * list.size();
+            for (Object element : list) {
+                weight += weigh(element);
+            }
+            return weight;
+        }
+        return 16;
+    }
+    
+    /**
+     * One lock's share of the cache.
+     */
+    private final class Segment {
+        
+        private final long bound;
+        private final LinkedHashMap<List<Object>, Entry> entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+        
+        Segment(long bound) {
+            this.bound = bound;
+        }
+        
+        synchronized List<String> get(long version, List<Object> key) {
+            Entry entry = entries.get(key);
+            // an entry of another version is from a segment not yet emptied by invalidate
+            return entry == null || entry.version != version ? null : entry.result;
+        }
+        
+        synchronized void put(long version, List<Object> key, List<String> result,
+            long entryWeight) {
+            // a result computed while the version moved on belongs to stale data
+            if (version != QueryCache.this.version || entryWeight > bound) {
+                return;
+            }
+            Entry previous = entries.put(key, new Entry(version, result, entryWeight));
+            weight += entryWeight - (previous == null ? 0 : previous.weight);
+            Iterator<Map.Entry<List<Object>, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > bound) {
+                weight -= eldest.next().getValue().weight;
+                eldest.remove();
+                evictions.increment();
+                AnalyzerMetrics.count(AnalyzerMetrics.Counter.CACHE_EVICTIONS, 1);
+            }
+        }
+        
+        synchronized void clear() {
+            entries.clear();
+            weight = 0;
+        }
+        
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+    
+    /**
+     * A cached result, the version it was computed on and its weight.
+     */
+    private static final class Entry {
+        
+        private final long version;
+        private final List<String> result;
+        private final long weight;
+        
+        Entry(long version, List<String> result, long weight) {
+            this.version = version;
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+}
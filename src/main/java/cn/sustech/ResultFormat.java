@@ -0,0 +1,12 @@
+package cn.sustech;
+
+/**
+ * Formats the write methods of {@link OnlineCoursesAnalyzer} stream results in.
+ */
+public enum ResultFormat {
+    
+    /** RFC 4180 csv with a header line, fields quoted only when needed. */
+    CSV,
+    /** One JSON object, shaped like the map the query method returns. */
+    JSON
+}
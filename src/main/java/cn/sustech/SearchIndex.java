@@ -0,0 +1,472 @@
+package cn.sustech;
+
+import static cn.sustech.CourseColumn.AUDITED_RATE;
+import static cn.sustech.CourseColumn.COURSE_SUBJECTS;
+import static cn.sustech.CourseColumn.COURSE_TITLE;
+import static cn.sustech.CourseColumn.LAUNCH_DATE;
+import static cn.sustech.CourseColumn.TOTAL_COURSE_HOURS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Index answering {@link OnlineCoursesAnalyzer#searchCourses} without scanning every row.
+ *
+ * <p>The distinct subjects are lowercased once, and a trigram index maps every three
+ * characters of a lowercased subject to the subjects containing them. A query of three or
+ * more characters only checks the subjects of its rarest trigram; shorter queries check all
+ * distinct subjects, which are far fewer than the rows.</p>
+ *
+ * <p>The rows are also grouped by subject, and sorted by {@code auditedRate}, by
+ * {@code totalCourseHours} and by launch date. Each sorted order is kept as one
+ * {@code long[]} whose entries are the value in the high half and the row in the low half:
+ * the epoch day for launch dates, and the float rounding for the rates and hours. Rounding
+ * to float is monotonic, so a binary search over it yields a superset of the rows in a
+ * range. A query walks whichever of the matching subjects' rows, the audited range, the
+ * hours range and the launch range is smallest, and checks the exact predicates on each row
+ * it visits.</p>
+ */
+final class SearchIndex {
+    
+    private final String[] lowerSubjects;
+    private final LongIntHashMap trigramSlots;
+    private final int[] trigramOffsets;
+    private final int[] trigramSubjects;
+    private final int[] subjectOffsets;
+    private final int[] rowsBySubject;
+    private final long[] byAuditedRate;
+    private final long[] byHours;
+    private final long[] byLaunch;
+    private final int[] titleByRank;
+    
+    private SearchIndex(String[] lowerSubjects, LongIntHashMap trigramSlots,
+        int[] trigramOffsets, int[] trigramSubjects, int[] subjectOffsets, int[] rowsBySubject,
+        long[] byAuditedRate, long[] byHours, long[] byLaunch, int[] titleByRank) {
+        this.lowerSubjects = lowerSubjects;
+        this.trigramSlots = trigramSlots;
+        this.trigramOffsets = trigramOffsets;
+        this.trigramSubjects = trigramSubjects;
+        this.subjectOffsets = subjectOffsets;
+        this.rowsBySubject = rowsBySubject;
+        this.byAuditedRate = byAuditedRate;
+        this.byHours = byHours;
+        this.byLaunch = byLaunch;
+        this.titleByRank = titleByRank;
+    }
+    
+    /**.
+     *
+     * <p>Builds the index of a table.</p>
+     *
+     * @param table the course table
+     * @return the index
+     */
+    static SearchIndex build(CourseTable table) {
+        StringDictionary subjects = table.dictionary(COURSE_SUBJECTS);
+        String[] lowerSubjects = new String[subjects.size()];
+        LongIntHashMap trigramSlots = new LongIntHashMap();
+        int[] trigramCounts = new int[16];
+        long[][] trigramsOfSubject = new long[subjects.size()][];
+        for (int code = 0; code < subjects.size(); code++) {
+            lowerSubjects[code] = subjects.value(code).toLowerCase();
+            long[] trigrams = distinctTrigrams(lowerSubjects[code]);
+            trigramsOfSubject[code] = trigrams;
+            for (long trigram : trigrams) {
+                int slot = trigramSlots.get(trigram, -1);
+                if (slot < 0) {
+                    slot = trigramSlots.size();
+                    trigramSlots.addTo(trigram, slot);
+                    if (slot == trigramCounts.length) {
+                        trigramCounts = Arrays.copyOf(trigramCounts, slot * 2);
+                    }
+                }
+                trigramCounts[slot]++;
+            }
+        }
+        int[] trigramOffsets = offsets(trigramCounts, trigramSlots.size());
+        int[] trigramSubjects = new int[trigramOffsets[trigramSlots.size()]];
+        int[] fill = Arrays.copyOf(trigramOffsets, trigramSlots.size());
+        for (int code = 0; code < subjects.size(); code++) {
+            for (long trigram : trigramsOfSubject[code]) {
+                trigramSubjects[fill[trigramSlots.get(trigram, -1)]++] = code;
+            }
+        }
+        
+        int[] subject = table.ints(COURSE_SUBJECTS);
+        int[] subjectCounts = new int[subjects.size()];
+        for (int row = 0; row < table.size(); row++) {
+            subjectCounts[subject[row]]++;
+        }
+        int[] subjectOffsets = offsets(subjectCounts, subjects.size());
+        int[] rowsBySubject = new int[table.size()];
+        fill = Arrays.copyOf(subjectOffsets, subjects.size());
+        for (int row = 0; row < table.size(); row++) {
+            rowsBySubject[fill[subject[row]]++] = row;
+        }
+        
+        int[] launchDate = table.ints(LAUNCH_DATE);
+        long[] byLaunch = new long[table.size()];
+        for (int row = 0; row < table.size(); row++) {
+            byLaunch[row] = (long) launchDate[row] << 32 | row;
+        }
+        Arrays.sort(byLaunch);
+        
+        int[] rank = table.dictionary(COURSE_TITLE).ranks();
+        int[] titleByRank = new int[rank.length];
+        for (int code = 0; code < rank.length; code++) {
+            titleByRank[rank[code]] = code;
+        }
+        return new SearchIndex(lowerSubjects, trigramSlots, trigramOffsets, trigramSubjects,
+            subjectOffsets, rowsBySubject, sortedKeys(table.doubles(AUDITED_RATE), table.size()),
+            sortedKeys(table.doubles(TOTAL_COURSE_HOURS), table.size()), byLaunch, titleByRank);
+    }
+    
+    /**.
+     *
+     * <p>Finds the titles of the courses whose subject contains the query, ignoring case,
+     * whose audited rate is at least {@code percentAudited}, whose total hours are at most
+     * {@code totalCourseHours} and which were launched between two days.</p>
+     *
+     * @param table the table the index was built from
+     * @param courseSubject the subject query
+     * @param percentAudited the minimum audited rate
+     * @param totalCourseHours the maximum total course hours
+     * @param launchedFrom the first launch epoch day, inclusive
+     * @param launchedTo the last launch epoch day, inclusive
+     * @return the distinct titles in alphabetical order
+     */
+    List<String> search(CourseTable table, String courseSubject, double percentAudited,
+        double totalCourseHours, int launchedFrom, int launchedTo) {
+        return search(table, courseSubject, percentAudited, totalCourseHours, launchedFrom,
+            launchedTo, null, Integer.MAX_VALUE);
+    }
+    
+    /**.
+     *
+     * <p>Searches as {@link #search(CourseTable, String, double, double, int, int)} does,
+     * checking the visited rows on the pool once they reach two partitions. The rows are cut
+     * into ranges of at most {@code minPartition}, which are split in halves between tasks;
+     * each task collects the titles it finds, and the titles of all tasks are sorted and
+     * deduplicated, so the result does not depend on how the rows were split.</p>
+     *
+     * @param table the table the index was built from
+     * @param courseSubject the subject query
+     * @param percentAudited the minimum audited rate
+     * @param totalCourseHours the maximum total course hours
+     * @param launchedFrom the first launch epoch day, inclusive
+     * @param launchedTo the last launch epoch day, inclusive
+     * @param pool the pool to check rows on, or null to check them sequentially
+     * @param minPartition the fewest rows a task checks
+     * @return the distinct titles in alphabetical order
+     */
+    List<String> search(CourseTable table, String courseSubject, double percentAudited,
+        double totalCourseHours, int launchedFrom, int launchedTo, ForkJoinPool pool,
+        int minPartition) {
+        boolean[] matches = new boolean[lowerSubjects.length];
+        long subjectRows = matchSubjects(courseSubject.toLowerCase(), matches);
+        if (subjectRows == 0 || launchedFrom > launchedTo) {
+            return new ArrayList<>();
+        }
+        int auditedFrom = lowerBound(byAuditedRate, key(percentAudited, 0));
+        int auditedTo = byAuditedRate.length;
+        int hoursTo = lowerBound(byHours, key(totalCourseHours, Integer.MAX_VALUE) + 1);
+        int launchFrom = lowerBound(byLaunch, (long) launchedFrom << 32);
+        // no entry has row 0xffffffff, so this is the end of the last day
+        int launchTo = lowerBound(byLaunch, (long) launchedTo << 32 | 0xffffffffL);
+        
+        long[] keys = byAuditedRate;
+        int from = auditedFrom;
+        int to = auditedTo;
+        if (hoursTo < to - from) {
+            keys = byHours;
+            from = 0;
+            to = hoursTo;
+        }
+        if (launchTo - launchFrom < to - from) {
+            keys = byLaunch;
+            from = launchFrom;
+            to = launchTo;
+        }
+        
+        AnalyzerMetrics.count(AnalyzerMetrics.Counter.ROWS_SCANNED,
+            Math.min(subjectRows, to - from));
+        Scan scan;
+        if (subjectRows <= to - from) {
+            scan = new Scan(table, matches, rowsBySubject, null);
+            for (int code = 0; code < matches.length; code++) {
+                if (matches[code]) {
+                    scan.add(subjectOffsets[code], subjectOffsets[code + 1], minPartition);
+                }
+            }
+        } else {
+            scan = new Scan(table, matches, null, keys);
+            scan.add(from, to, minPartition);
+        }
+        scan.percentAudited = percentAudited;
+        scan.totalCourseHours = totalCourseHours;
+        scan.launchedFrom = launchedFrom;
+        scan.launchedTo = launchedTo;
+        int[] found = pool == null || scan.rows(0, scan.ranges) < 2L * minPartition
+            ? scan.titles(0, scan.ranges)
+            : pool.invoke(new ScanTask(scan, 0, scan.ranges, minPartition));
+        Arrays.sort(found);
+        StringDictionary titles = table.dictionary(COURSE_TITLE);
+        List<String> result = new ArrayList<>(found.length);
+        for (int i = 0; i < found.length; i++) {
+            if (i == 0 || found[i] != found[i - 1]) {
+                result.add(titles.value(titleByRank[found[i]]));
+            }
+        }
+        return result;
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes of the index: the lowercased subjects, the trigram lists, the
+     * row groups and the three sorted orders.</p>
+     *
+     * @return the estimated bytes
+     */
+    long retainedBytes() {
+        long bytes = MemoryFootprint.array(lowerSubjects.length, 4);
+        for (String subject : lowerSubjects) {
+            bytes += QueryCache.weigh(subject);
+        }
+        return bytes + trigramSlots.retainedBytes()
+            + MemoryFootprint.array(trigramOffsets.length, 4)
+            + MemoryFootprint.array(trigramSubjects.length, 4)
+            + MemoryFootprint.array(subjectOffsets.length, 4)
+            + MemoryFootprint.array(rowsBySubject.length, 4)
+            + MemoryFootprint.array(byAuditedRate.length, 8)
+            + MemoryFootprint.array(byHours.length, 8)
+            + MemoryFootprint.array(byLaunch.length, 8)
+            + MemoryFootprint.array(titleByRank.length, 4);
+    }
+    
+    /**.
+     *
+     * <p>Marks the subjects containing the lowercased query.</p>
+     *
+     * @param query the lowercased query
+     * @param matches receives whether each subject matches
+     * @return the number of rows of the matching subjects
+     */
+    private long matchSubjects(String query, boolean[] matches) {
+        int from = 0;
+        int to = lowerSubjects.length;
+        int[] codes = null;
+        if (query.length() >= 3) {
+            for (long trigram : distinctTrigrams(query)) {
+                int slot = trigramSlots.get(trigram, -1);
+                if (slot < 0) {
+                    return 0;
+                }
+                if (codes == null || trigramOffsets[slot + 1] - trigramOffsets[slot] < to - from) {
+                    from = trigramOffsets[slot];
+                    to = trigramOffsets[slot + 1];
+                    codes = trigramSubjects;
+                }
+            }
+        }
+        long rows = 0;
+        for (int i = from; i < to; i++) {
+            int code = codes == null ? i : codes[i];
+            if (lowerSubjects[code].contains(query)) {
+                matches[code] = true;
+                rows += subjectOffsets[code + 1] - subjectOffsets[code];
+            }
+        }
+        return rows;
+    }
+    
+    private static long[] distinctTrigrams(String value) {
+        if (value.length() < 3) {
+            return new long[0];
+        }
+        long[] trigrams = new long[value.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) value.charAt(i) << 32 | (long) value.charAt(i + 1) << 16
+                | value.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int n = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (n == 0 || trigrams[i] != trigrams[n - 1]) {
+                trigrams[n++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, n);
+    }
+    
+    private static int[] offsets(int[] counts, int length) {
+        int[] offsets = new int[length + 1];
+        for (int i = 0; i < length; i++) {
+            offsets[i + 1] = offsets[i] + counts[i];
+        }
+        return offsets;
+    }
+    
+    /**.
+     *
+     * <p>The rows sorted by value, each packed with its value as {@link #key}.</p>
+     */
+    private static long[] sortedKeys(double[] values, int size) {
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = key(values[row], row);
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+    
+    /**.
+     *
+     * <p>Packs the float rounding of a value, as an int ordered like the floats, above a row.
+     * Zeros are normalized so -0.0 sorts with 0.0, and NaN sorts above every number.</p>
+     */
+    private static long key(double value, int row) {
+        int bits = Float.floatToIntBits((float) value + 0.0f);
+        return (long) (bits ^ ((bits >> 31) & 0x7fffffff)) << 32 | row;
+    }
+    
+    /**
+     * The rows one query visits, as ranges of positions in the rows grouped by subject or in
+     * one sorted order, with the predicates every visited row is checked against.
+     */
+    private static final class Scan {
+        
+        private final int[] subject;
+        private final double[] auditedRate;
+        private final double[] hours;
+        private final int[] launchDate;
+        private final int[] title;
+        private final int[] rank;
+        private final boolean[] matches;
+        private final int[] rows;
+        private final long[] keys;
+        private double percentAudited;
+        private double totalCourseHours;
+        private int launchedFrom;
+        private int launchedTo;
+        // the ends of range i are bounds[2 * i] and bounds[2 * i + 1]
+        private int[] bounds = new int[16];
+        private int ranges;
+        
+        Scan(CourseTable table, boolean[] matches, int[] rows, long[] keys) {
+            subject = table.ints(COURSE_SUBJECTS);
+            auditedRate = table.doubles(AUDITED_RATE);
+            hours = table.doubles(TOTAL_COURSE_HOURS);
+            launchDate = table.ints(LAUNCH_DATE);
+            title = table.ints(COURSE_TITLE);
+            rank = table.dictionary(COURSE_TITLE).ranks();
+            this.matches = matches;
+            this.rows = rows;
+            this.keys = keys;
+        }
+        
+        /**.
+         *
+         * <p>Adds the positions from {@code from} to {@code to}, cut into ranges of at most
+         * {@code maxRange}.</p>
+         */
+        void add(int from, int to, int maxRange) {
+            for (int start = from; start < to; start += Math.min(to - start, maxRange)) {
+                bounds = append(bounds, 2 * ranges, start);
+                bounds = append(bounds, 2 * ranges + 1, start + Math.min(to - start, maxRange));
+                ranges++;
+            }
+        }
+        
+        long rows(int fromRange, int toRange) {
+            long count = 0;
+            for (int i = fromRange; i < toRange; i++) {
+                count += bounds[2 * i + 1] - bounds[2 * i];
+            }
+            return count;
+        }
+        
+        /**.
+         *
+         * <p>Checks the rows of some ranges.</p>
+         *
+         * @return the distinct ranks of the titles of the matching rows, in no order
+         */
+        int[] titles(int fromRange, int toRange) {
+            boolean[] seen = new boolean[rank.length];
+            int[] found = new int[16];
+            int count = 0;
+            for (int range = fromRange; range < toRange; range++) {
+                for (int i = bounds[2 * range]; i < bounds[2 * range + 1]; i++) {
+                    int row = rows != null ? rows[i] : (int) keys[i];
+                    if (matches[subject[row]] && auditedRate[row] >= percentAudited
+                        && hours[row] <= totalCourseHours && launchDate[row] >= launchedFrom
+                        && launchDate[row] <= launchedTo && !seen[title[row]]) {
+                        seen[title[row]] = true;
+                        found = append(found, count++, rank[title[row]]);
+                    }
+                }
+            }
+            return Arrays.copyOf(found, count);
+        }
+    }
+    
+    /**
+     * Checks the rows of some ranges of a scan, split in halves by range.
+     */
+    private static final class ScanTask extends RecursiveTask<int[]> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final Scan scan;
+        private final int from;
+        private final int to;
+        private final int minPartition;
+        
+        ScanTask(Scan scan, int from, int to, int minPartition) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+            this.minPartition = minPartition;
+        }
+        
+        @Override
+        protected int[] compute() {
+            if (to - from == 1 || scan.rows(from, to) < 2L * minPartition) {
+                return scan.titles(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(scan, from, middle, minPartition);
+            left.fork();
+            int[] right = new ScanTask(scan, middle, to, minPartition).compute();
+            int[] found = left.join();
+            int[] merged = Arrays.copyOf(found, found.length + right.length);
+            System.arraycopy(right, 0, merged, found.length, right.length);
+            return merged;
+        }
+    }
+    
+    private static int lowerBound(long[] keys, long key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private static int[] append(int[] values, int at, int value) {
+        if (at == values.length) {
+            values = Arrays.copyOf(values, at * 2);
+        }
+        values[at] = value;
+        return values;
+    }
+}
@@ -0,0 +1,29 @@
+package cn.sustech;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for an analyzer operation slower than the threshold of
+ * {@link AnalyzerMetrics#setSlowQueryThreshold(java.time.Duration)}.
+ */
+@Name("cn.sustech.SlowQuery")
+@Label("Slow Analyzer Query")
+@Category("Online Courses Analyzer")
+@Description("An analyzer operation that took longer than the slow query threshold")
+final class SlowQueryEvent extends Event {
+    
+    @Label("Operation")
+    String operation;
+    
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+    
+    @Label("Allocated Bytes")
+    long allocatedBytes;
+}
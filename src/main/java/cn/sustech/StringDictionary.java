@@ -0,0 +1,233 @@
+package cn.sustech;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary that encodes each distinct string of a text column as a dense int code.
+ *
+ * <p>Every distinct value is held as one {@code String}, shared by all rows that have it.
+ * While a file is parsed, fields are looked up by their UTF-8 bytes in a second hash table,
+ * so a value already in the dictionary is encoded without decoding a new {@code String}; the
+ * byte table is dropped by {@link #trimToSize()} once loading is done.</p>
+ */
+final class StringDictionary {
+    
+    private final Map<String, Integer> codes = new HashMap<>();
+    
+    private String[] values = new String[16];
+    
+    private int size;
+    
+    private volatile int[] ranks;
+    
+    // open addressing over the utf-8 bytes of values; null slots are free
+    private byte[][] byteKeys;
+    private int[] byteCodes;
+    private int byteCount;
+    
+    StringDictionary() {
+    }
+    
+    /**.
+     *
+     * <p>Creates a dictionary whose codes are the indexes of the given distinct values.</p>
+     *
+     * @param values the values in code order
+     */
+    StringDictionary(String[] values) {
+        this.values = Arrays.copyOf(values, Math.max(16, values.length));
+        for (String value : values) {
+            codes.put(value, size++);
+        }
+    }
+    
+    /**.
+     *
+     * <p>Returns the code of the value, assigning the next free code to a new value.</p>
+     *
+     * @param value the string to encode
+     * @return the code of the value
+     */
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        return size++;
+    }
+    
+    /**.
+     *
+     * <p>Returns the code of the value held in a byte array as a csv field, assigning the
+     * next free code to a new value. The field is decoded only when its bytes were not
+     * encoded before.</p>
+     *
+     * @param buf the bytes
+     * @param start the first byte of the field contents
+     * @param end the byte after the field contents
+     * @param escaped whether the contents hold doubled quotes
+     * @return the code of the value
+     */
+    int encode(byte[] buf, int start, int end, boolean escaped) {
+        if (escaped) {
+            return encode(CsvTokenizer.text(buf, start, end, true));
+        }
+        if (byteKeys == null) {
+            byteKeys = new byte[Math.max(16, Integer.highestOneBit(size * 4 + 1))][];
+            byteCodes = new int[byteKeys.length];
+            byteCount = 0;
+        }
+        int hash = hash(buf, start, end);
+        int mask = byteKeys.length - 1;
+        int slot = hash & mask;
+        for (byte[] key = byteKeys[slot]; key != null; key = byteKeys[slot]) {
+            if (Arrays.equals(key, 0, key.length, buf, start, end)) {
+                return byteCodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        // different bytes may decode to an existing value, so the string map decides the code
+        int code = encode(CsvTokenizer.text(buf, start, end, false));
+        byteKeys[slot] = Arrays.copyOfRange(buf, start, end);
+        byteCodes[slot] = code;
+        if (++byteCount * 2 > byteKeys.length) {
+            rehashBytes();
+        }
+        return code;
+    }
+    
+    /**.
+     *
+     * <p>Looks up the code of a value without adding it.</p>
+     *
+     * @param value the string to look up
+     * @return the code of the value, or -1 if it is not in the dictionary
+     */
+    int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+    
+    String value(int code) {
+        return values[code];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**.
+     *
+     * <p>Ranks the current values in their natural {@code String} order. The ranks are
+     * cached until a new value is encoded, so callers must not modify the array.</p>
+     *
+     * @return the rank of each code, from 0 for the smallest value
+     */
+    int[] ranks() {
+        int[] cached = ranks;
+        if (cached != null && cached.length == size) {
+            return cached;
+        }
+        Integer[] sorted = new Integer[size];
+        for (int code = 0; code < size; code++) {
+            sorted[code] = code;
+        }
+        Arrays.sort(sorted, (a, b) -> values[a].compareTo(values[b]));
+        int[] ranks = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            ranks[sorted[rank]] = rank;
+        }
+        this.ranks = ranks;
+        return ranks;
+    }
+    
+    /**.
+     *
+     * <p>Drops the byte table used while parsing and shrinks the values array.</p>
+     */
+    void trimToSize() {
+        byteKeys = null;
+        byteCodes = null;
+        values = Arrays.copyOf(values, Math.max(1, size));
+    }
+    
+    /**.
+     *
+     * <p>The estimated bytes the dictionary retains, as {@link MemoryFootprint} counts
+     * them.</p>
+     *
+     * @return the estimated bytes
+     */
+    long retainedBytes() {
+        long bytes = MemoryFootprint.array(values.length, 4);
+        for (int code = 0; code < size; code++) {
+            bytes += QueryCache.weigh(values[code]);
+        }
+        // a hash map node and a boxed code per value, and the bucket array
+        bytes += 48L * size
+            + MemoryFootprint.array(Integer.highestOneBit(size * 4 / 3 + 1) * 2L, 4);
+        int[] cached = ranks;
+        if (cached != null) {
+            bytes += MemoryFootprint.array(cached.length, 4);
+        }
+        byte[][] keys = byteKeys;
+        if (keys != null) {
+            bytes += MemoryFootprint.array(keys.length, 4) + MemoryFootprint.array(keys.length, 4);
+            for (byte[] key : keys) {
+                if (key != null) {
+                    bytes += MemoryFootprint.array(key.length, 1);
+                }
+            }
+        }
+        return bytes;
+    }
+    
+    /**.
+     *
+     * <p>Encodes every value of another dictionary into this one.</p>
+     *
+     * @param other the dictionary to merge
+     * @return the code in this dictionary of each code of {@code other}
+     */
+    int[] merge(StringDictionary other) {
+        int[] mapping = new int[other.size];
+        for (int code = 0; code < other.size; code++) {
+            mapping[code] = encode(other.values[code]);
+        }
+        return mapping;
+    }
+    
+    private void rehashBytes() {
+        byte[][] oldKeys = byteKeys;
+        int[] oldCodes = byteCodes;
+        byteKeys = new byte[oldKeys.length * 2][];
+        byteCodes = new int[byteKeys.length];
+        int mask = byteKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int slot = hash(oldKeys[i], 0, oldKeys[i].length) & mask;
+            while (byteKeys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            byteKeys[slot] = oldKeys[i];
+            byteCodes[slot] = oldCodes[i];
+        }
+    }
+    
+    private static int hash(byte[] buf, int start, int end) {
+        int h = 1;
+        for (int p = start; p < end; p++) {
+            h = 31 * h + buf[p];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,227 @@
+package cn.sustech;
+
+import static cn.sustech.CourseColumn.COURSE_TITLE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Selects the top K distinct course titles by a numeric column.
+ *
+ * <p>Ranking the rows by value descending then title ascending and keeping the first row of
+ * each title is the same as ranking the titles by their best value. So one pass keeps the
+ * best value of every title, and a bounded heap of K titles picks the winners; the cost is
+ * O(n + titles log K) instead of a sort of all n rows. The best-value pass can also run on a
+ * pool, with each partition of the rows keeping its own best values and the partitions
+ * merged pairwise.</p>
+ */
+final class TopKSelector {
+    
+    static final int MIN_PARTITION = 1 << 16;
+    
+    private TopKSelector() {
+    }
+    
+    /**.
+     *
+     * <p>Selects the top titles sequentially.</p>
+     *
+     * @param table the course table
+     * @param column an INT or DOUBLE column
+     * @param k the number of titles
+     * @return the titles, best first
+     */
+    static List<String> select(CourseTable table, CourseColumn column, int k) {
+        return select(table, column, k, null);
+    }
+    
+    /**.
+     *
+     * <p>Selects the top titles, scanning large tables in partitions on the pool.</p>
+     *
+     * @param table the course table
+     * @param column an INT or DOUBLE column
+     * @param k the number of titles
+     * @param pool the pool to scan on, or null to scan sequentially
+     * @return the titles, best first
+     */
+    static List<String> select(CourseTable table, CourseColumn column, int k,
+        ForkJoinPool pool) {
+        return select(table, column, k, pool, MIN_PARTITION);
+    }
+    
+    /**.
+     *
+     * <p>Selects the top titles, scanning tables of at least two partitions on the pool.</p>
+     *
+     * @param table the course table
+     * @param column an INT or DOUBLE column
+     * @param k the number of titles
+     * @param pool the pool to scan on, or null to scan sequentially
+     * @param minPartition the fewest rows a partition is scanned with
+     * @return the titles, best first
+     */
+    static List<String> select(CourseTable table, CourseColumn column, int k,
+        ForkJoinPool pool, int minPartition) {
+        if (k < 0) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+        Best best = pool == null || table.size() < 2L * minPartition
+            ? Best.scan(table, column, 0, table.size())
+            : pool.invoke(new ScanTask(table, column, 0, table.size(), minPartition));
+        StringDictionary titles = table.dictionary(COURSE_TITLE);
+        int[] rank = titles.ranks();
+        
+        int[] heap = new int[Math.min(k, titles.size())];
+        int size = 0;
+        for (int title = 0; title < titles.size(); title++) {
+            if (!best.seen[title]) {
+                continue;
+            }
+            if (size < heap.length) {
+                heap[size] = title;
+                siftUp(heap, size++, best.values, rank);
+            } else if (size > 0 && better(title, heap[0], best.values, rank)) {
+                heap[0] = title;
+                siftDown(heap, size, best.values, rank);
+            }
+        }
+        Integer[] winners = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            winners[i] = heap[i];
+        }
+        Arrays.sort(winners,
+            (a, b) -> a.equals(b) ? 0 : better(a, b, best.values, rank) ? -1 : 1);
+        List<String> result = new ArrayList<>(size);
+        for (Integer title : winners) {
+            result.add(titles.value(title));
+        }
+        return result;
+    }
+    
+    private static boolean better(int a, int b, double[] values, int[] rank) {
+        int order = Double.compare(values[a], values[b]);
+        return order > 0 || order == 0 && rank[a] < rank[b];
+    }
+    
+    /**.
+     *
+     * <p>The heap keeps its worst title at the root.</p>
+     */
+    private static void siftUp(int[] heap, int at, double[] values, int[] rank) {
+        int title = heap[at];
+        while (at > 0) {
+            int parent = (at - 1) >>> 1;
+            if (!better(heap[parent], title, values, rank)) {
+                break;
+            }
+            heap[at] = heap[parent];
+            at = parent;
+        }
+        heap[at] = title;
+    }
+    
+    private static void siftDown(int[] heap, int size, double[] values, int[] rank) {
+        int title = heap[0];
+        int at = 0;
+        while (true) {
+            int child = 2 * at + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && better(heap[child], heap[child + 1], values, rank)) {
+                child++;
+            }
+            if (!better(title, heap[child], values, rank)) {
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = title;
+    }
+    
+    /**
+     * The best value of each title over a range of rows.
+     */
+    private static final class Best {
+        
+        private final double[] values;
+        private final boolean[] seen;
+        
+        private Best(int titles) {
+            values = new double[titles];
+            seen = new boolean[titles];
+        }
+        
+        static Best scan(CourseTable table, CourseColumn column, int from, int to) {
+            int[] title = table.ints(COURSE_TITLE);
+            Best best = new Best(table.dictionary(COURSE_TITLE).size());
+            if (column.type() == CourseColumn.Type.INT) {
+                int[] values = table.ints(column);
+                for (int row = from; row < to; row++) {
+                    best.offer(title[row], values[row]);
+                }
+            } else {
+                double[] values = table.doubles(column);
+                for (int row = from; row < to; row++) {
+                    best.offer(title[row], values[row]);
+                }
+            }
+            return best;
+        }
+        
+        private void offer(int title, double value) {
+            if (!seen[title] || Double.compare(value, values[title]) > 0) {
+                values[title] = value;
+                seen[title] = true;
+            }
+        }
+        
+        Best merge(Best other) {
+            for (int title = 0; title < values.length; title++) {
+                if (other.seen[title]) {
+                    offer(title, other.values[title]);
+                }
+            }
+            return this;
+        }
+    }
+    
+    /**
+     * Splits a row range in halves until it is small enough to scan.
+     */
+    private static final class ScanTask extends RecursiveTask<Best> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final CourseTable table;
+        private final CourseColumn column;
+        private final int from;
+        private final int to;
+        private final int minPartition;
+        
+        ScanTask(CourseTable table, CourseColumn column, int from, int to, int minPartition) {
+            this.table = table;
+            this.column = column;
+            this.from = from;
+            this.to = to;
+            this.minPartition = minPartition;
+        }
+        
+        @Override
+        protected Best compute() {
+            if (to - from < 2L * minPartition) {
+                return Best.scan(table, column, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(table, column, from, middle, minPartition);
+            left.fork();
+            Best right = new ScanTask(table, column, middle, to, minPartition).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalyzerMetricsTest {
+
+    @AfterEach
+    void tearDown() {
+        AnalyzerMetrics.setEnabled(false);
+        AnalyzerMetrics.setSlowQueryThreshold(Duration.ofMillis(100));
+        AnalyzerMetrics.reset();
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Counts counts = histogram.counts();
+        assertEquals(1000, counts.total());
+        assertEquals(1_000_000, counts.max());
+        assertEquals(500_500.0, counts.mean(), 1e-9);
+        for (double fraction : new double[] {0.5, 0.9, 0.99}) {
+            double expected = fraction * 1_000_000;
+            assertEquals(expected, counts.percentile(fraction), expected * 0.125);
+        }
+        for (long value : new long[] {0, 15, 16, 17, 1000, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.lowerBound(bucket) <= value);
+            assertTrue(bucket == LatencyHistogram.bucket(Long.MAX_VALUE)
+                    || value < LatencyHistogram.lowerBound(bucket + 1));
+        }
+    }
+
+    @Test
+    void testDisabledRecordsNothing() throws IOException {
+        AnalyzerMetrics.setEnabled(false);
+        AnalyzerMetrics.reset();
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        analyzer.getCourses(10, "hours");
+        MetricsSnapshot snapshot = AnalyzerMetrics.snapshot();
+        assertEquals(0, snapshot.get(AnalyzerMetrics.Operation.GET_COURSES).getCount());
+        assertEquals(0, snapshot.getCounters().get("ROWS_LOADED"));
+    }
+
+    @Test
+    void testQueriesAreRecorded() throws Exception {
+        AnalyzerMetrics.setEnabled(true);
+        AnalyzerMetrics.reset();
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        analyzer.setQueryCache(QueryCache.ofEntries(10));
+        for (int i = 0; i < 3; i++) {
+            analyzer.getCourses(10, "hours");
+            analyzer.searchCourses("science", 25.0, 400);
+            analyzer.recommendCourses(30, 0, 1);
+        }
+        analyzer.getPtcpCountByInst();
+        analyzer.getCourseListOfInstructor();
+
+        MetricsSnapshot snapshot = AnalyzerMetrics.snapshot();
+        assertEquals(1, snapshot.get(AnalyzerMetrics.Operation.LOAD_PARSE).getCount());
+        assertEquals(1, snapshot.get(AnalyzerMetrics.Operation.LOAD_AGGREGATE).getCount());
+        assertEquals(3, snapshot.get(AnalyzerMetrics.Operation.GET_COURSES).getCount());
+        assertEquals(1, snapshot.get(AnalyzerMetrics.Operation.SEARCH_INDEX_BUILD).getCount());
+        assertEquals(1, snapshot.get(AnalyzerMetrics.Operation.COURSE_LIST_OF_INSTRUCTOR).getCount());
+        MetricsSnapshot.OperationStats search = snapshot.get(AnalyzerMetrics.Operation.SEARCH_COURSES);
+        assertTrue(search.getP50Nanos() <= search.getP99Nanos());
+        assertTrue(search.getP99Nanos() <= search.getMaxNanos());
+        Map<String, Long> counters = snapshot.getCounters();
+        assertEquals(288, counters.get("ROWS_LOADED"));
+        assertEquals(6, counters.get("CACHE_HITS"));
+        assertEquals(3, counters.get("CACHE_MISSES"));
+        // one top-K scan of every row plus the rows the search visits
+        assertTrue(counters.get("ROWS_SCANNED") > 288, counters.toString());
+
+        AnalyzerMetrics.registerMBean();
+        AnalyzerMetrics.registerMBean();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(AnalyzerMetrics.OBJECT_NAME);
+        assertEquals(true, server.getAttribute(name, "Enabled"));
+        CompositeData[] operations = (CompositeData[]) server.getAttribute(name, "Operations");
+        assertEquals(AnalyzerMetrics.Operation.values().length, operations.length);
+        assertEquals(3L, operations[AnalyzerMetrics.Operation.GET_COURSES.ordinal()].get("count"));
+        server.setAttribute(name, new javax.management.Attribute("SlowQueryThresholdMillis", 5L));
+        assertEquals(Duration.ofMillis(5), AnalyzerMetrics.slowQueryThreshold());
+    }
+}
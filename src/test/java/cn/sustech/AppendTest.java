@@ -0,0 +1,50 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppendTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testAppendMatchesFullLoad() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"));
+        Path first = tempDir.resolve("first.csv");
+        Path second = tempDir.resolve("second.csv");
+        Files.write(first, lines.subList(0, 150));
+        Files.write(second, List.of(lines.get(0)));
+        Files.write(second, lines.subList(150, lines.size()), java.nio.file.StandardOpenOption.APPEND);
+
+        OnlineCoursesAnalyzer full = new OnlineCoursesAnalyzer("resources/local.csv");
+        OnlineCoursesAnalyzer appended = new OnlineCoursesAnalyzer(first.toString());
+        appended.getPtcpCountByInst();
+        appended.getPtcpCountByInstAndSubject();
+        appended.getCourseListOfInstructor();
+        appended.recommendCourses(25, 1, 1);
+
+        assertEquals(lines.size() - 150, appended.append(second.toString()));
+        assertEquals(List.copyOf(full.getPtcpCountByInst().entrySet()),
+                List.copyOf(appended.getPtcpCountByInst().entrySet()));
+        assertEquals(List.copyOf(full.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(appended.getPtcpCountByInstAndSubject().entrySet()));
+        assertEquals(full.getCourseListOfInstructor(), appended.getCourseListOfInstructor());
+        assertEquals(full.getCourses(15, "participants"), appended.getCourses(15, "participants"));
+        assertEquals(full.searchCourses("computer", 20.0, 700), appended.searchCourses("computer", 20.0, 700));
+        assertEquals(full.recommendCourses(25, 1, 1), appended.recommendCourses(25, 1, 1));
+
+        Path snapshot = tempDir.resolve("appended.snapshot");
+        appended.writeSnapshot(snapshot);
+        assertEquals(List.copyOf(full.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(OnlineCoursesAnalyzer.fromSnapshot(snapshot).getPtcpCountByInstAndSubject().entrySet()));
+    }
+}
@@ -0,0 +1,84 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentCoursesAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testQueriesMatchAnalyzer() throws IOException {
+        OnlineCoursesAnalyzer plain = new OnlineCoursesAnalyzer("resources/local.csv");
+        try (ConcurrentCoursesAnalyzer concurrent = new ConcurrentCoursesAnalyzer("resources/local.csv")) {
+            assertEquals(List.copyOf(plain.getPtcpCountByInst().entrySet()),
+                    List.copyOf(concurrent.getPtcpCountByInst().entrySet()));
+            assertEquals(List.copyOf(plain.getPtcpCountByInstAndSubject().entrySet()),
+                    List.copyOf(concurrent.getPtcpCountByInstAndSubject().entrySet()));
+            assertEquals(plain.getCourseListOfInstructor(), concurrent.getCourseListOfInstructor());
+            for (int i = 0; i < 2; i++) {
+                assertEquals(plain.getCourses(10, "hours"), concurrent.getCourses(10, "hours"));
+                assertEquals(plain.searchCourses("science", 25.0, 400), concurrent.searchCourses("science", 25.0, 400));
+                assertEquals(plain.recommendCourses(30, 0, 1), concurrent.recommendCourses(30, 0, 1));
+            }
+            assertThrows(UnsupportedOperationException.class, () -> concurrent.getCourses(10, "hours").clear());
+            assertThrows(UnsupportedOperationException.class, () -> concurrent.getPtcpCountByInst().clear());
+        }
+    }
+
+    @Test
+    void testReadersSeeWholeSnapshotsDuringReloads() throws Exception {
+        Path generated = tempDir.resolve("generated.csv");
+        new DatasetGenerator(5).writeCsv(30_000, generated);
+        List<String> local = new OnlineCoursesAnalyzer("resources/local.csv").getCourses(10, "participants");
+        List<String> other = new OnlineCoursesAnalyzer(generated.toString()).getCourses(10, "participants");
+        assertNotEquals(local, other);
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try (ConcurrentCoursesAnalyzer concurrent = new ConcurrentCoursesAnalyzer("resources/local.csv")) {
+            List<Future<Integer>> reads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                reads.add(readers.submit(() -> {
+                    int count = 0;
+                    while (running.get()) {
+                        List<String> result = concurrent.getCourses(10, "participants");
+                        assertTrue(result.equals(local) || result.equals(other), result::toString);
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            for (int i = 0; i < 4; i++) {
+                concurrent.reload(i % 2 == 0 ? generated.toString() : "resources/local.csv").join();
+            }
+            assertEquals(4, concurrent.version());
+            running.set(false);
+            for (Future<Integer> read : reads) {
+                assertTrue(read.get() > 0);
+            }
+            assertEquals(local, concurrent.getCourses(10, "participants"));
+
+            CompletionException failed = assertThrows(CompletionException.class,
+                    () -> concurrent.reload(tempDir.resolve("missing.csv").toString()).join());
+            assertInstanceOf(java.io.UncheckedIOException.class, failed.getCause());
+            assertEquals(4, concurrent.version());
+        } finally {
+            running.set(false);
+            readers.shutdownNow();
+        }
+    }
+}
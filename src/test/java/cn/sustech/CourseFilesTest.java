@@ -0,0 +1,154 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CourseFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> lines() throws IOException {
+        return Files.readAllLines(Paths.get("resources", "local.csv"));
+    }
+
+    private Path write(String name, List<String> lines, int from, int to) throws IOException {
+        List<String> content = new ArrayList<>();
+        content.add(lines.get(0));
+        content.addAll(lines.subList(from, to));
+        return Files.write(tempDir.resolve(name), content);
+    }
+
+    private static void assertSameResults(OnlineCoursesAnalyzer expected, OnlineCoursesAnalyzer actual) {
+        assertEquals(List.copyOf(expected.getPtcpCountByInst().entrySet()),
+                List.copyOf(actual.getPtcpCountByInst().entrySet()));
+        assertEquals(List.copyOf(expected.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(actual.getPtcpCountByInstAndSubject().entrySet()));
+        assertEquals(expected.getCourseListOfInstructor(), actual.getCourseListOfInstructor());
+        assertEquals(expected.getCourses(1000, "participants"), actual.getCourses(1000, "participants"));
+        assertEquals(expected.searchCourses("", 0, Double.MAX_VALUE),
+                actual.searchCourses("", 0, Double.MAX_VALUE));
+        assertEquals(expected.recommendCourses(25, 1, 1), actual.recommendCourses(25, 1, 1));
+    }
+
+    @Test
+    void testDirectoryAndGlobMatchSingleFile() throws IOException {
+        List<String> lines = lines();
+        write("term-1.csv", lines, 1, 100);
+        write("term-2.csv", lines, 100, 200);
+        write("term-3.csv", lines, 200, lines.size());
+        Files.writeString(tempDir.resolve("notes.txt"), "not a data file");
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertSameResults(new OnlineCoursesAnalyzer("resources/local.csv"),
+                    OnlineCoursesAnalyzer.fromFiles(tempDir.toString(), DuplicatePolicy.KEEP_ALL, pool));
+            Path firstTwo = write("first-two.csv", lines, 1, 200);
+            assertSameResults(new OnlineCoursesAnalyzer(firstTwo.toString()),
+                    OnlineCoursesAnalyzer.fromFiles(tempDir.resolve("term-[12].csv").toString(),
+                            DuplicatePolicy.KEEP_ALL, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testRefreshLoadsNewAndGrownFiles() throws IOException {
+        List<String> lines = lines();
+        Path first = write("term-1.csv", lines, 1, 100);
+        OnlineCoursesAnalyzer analyzer = OnlineCoursesAnalyzer.fromFiles(
+                tempDir.resolve("*.csv").toString(), DuplicatePolicy.KEEP_ALL, ForkJoinPool.commonPool());
+        analyzer.getCourseListOfInstructor();
+        assertEquals(0, analyzer.refresh());
+
+        Files.write(first, lines.subList(100, 150), StandardOpenOption.APPEND);
+        write("term-2.csv", lines, 150, lines.size());
+        assertEquals(lines.size() - 100, analyzer.refresh());
+        assertEquals(0, analyzer.refresh());
+        Path whole = write("whole.txt", lines, 1, lines.size());
+        assertSameResults(new OnlineCoursesAnalyzer(whole.toString()), analyzer);
+
+        write("term-1.csv", lines, 1, 120);
+        assertThrows(IOException.class, analyzer::refresh);
+        assertSameResults(new OnlineCoursesAnalyzer(whole.toString()), analyzer);
+        assertThrows(IllegalStateException.class,
+                () -> new OnlineCoursesAnalyzer("resources/local.csv").refresh());
+    }
+
+    @Test
+    void testDuplicatePolicies() throws IOException {
+        List<String> lines = lines();
+        write("a.csv", lines, 1, 50);
+        write("b.csv", lines, 40, 60);
+        String pattern = tempDir.resolve("?.csv").toString();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Path unique = write("unique.txt", lines, 1, 60);
+        assertSameResults(new OnlineCoursesAnalyzer(unique.toString()),
+                OnlineCoursesAnalyzer.fromFiles(pattern, DuplicatePolicy.KEEP_FIRST, pool));
+        assertThrows(IOException.class,
+                () -> OnlineCoursesAnalyzer.fromFiles(pattern, DuplicatePolicy.REJECT, pool));
+        OnlineCoursesAnalyzer all = new OnlineCoursesAnalyzer(write("all.txt", lines, 1, 50).toString());
+        all.append(tempDir.resolve("b.csv").toString());
+        assertSameResults(all, OnlineCoursesAnalyzer.fromFiles(pattern, DuplicatePolicy.KEEP_ALL, pool));
+
+        OnlineCoursesAnalyzer first = OnlineCoursesAnalyzer.fromFiles(pattern, DuplicatePolicy.KEEP_FIRST, pool);
+        write("c.csv", lines, 1, 80);
+        assertEquals(20, first.refresh());
+        assertSameResults(new OnlineCoursesAnalyzer(write("unique.txt", lines, 1, 80).toString()), first);
+    }
+
+    @Test
+    void testGrownFileKeepsItsOwnDuplicates() throws IOException {
+        List<String> lines = lines();
+        Path a = write("a.csv", lines, 1, 50);
+        write("b.csv", lines, 50, 60);
+        String pattern = tempDir.resolve("?.csv").toString();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        OnlineCoursesAnalyzer first = OnlineCoursesAnalyzer.fromFiles(pattern, DuplicatePolicy.KEEP_FIRST, pool);
+        OnlineCoursesAnalyzer reject = OnlineCoursesAnalyzer.fromFiles(pattern, DuplicatePolicy.REJECT, pool);
+
+        Files.write(a, lines.subList(10, 20), StandardOpenOption.APPEND);
+        assertEquals(10, first.refresh());
+        assertEquals(10, reject.refresh());
+        OnlineCoursesAnalyzer expected = new OnlineCoursesAnalyzer(write("all.txt", lines, 1, 60).toString());
+        expected.append(write("own.txt", lines, 10, 20).toString());
+        assertSameResults(expected, first);
+        assertSameResults(expected, reject);
+
+        Files.write(a, lines.subList(55, 58), StandardOpenOption.APPEND);
+        assertEquals(0, first.refresh());
+        assertThrows(IOException.class, reject::refresh);
+        assertSameResults(expected, first);
+        assertSameResults(expected, reject);
+    }
+
+    @Test
+    void testFileWithoutFinalLineBreak() throws IOException {
+        List<String> lines = lines();
+        Path file = tempDir.resolve("a.csv");
+        Files.writeString(file, String.join("\n", lines.subList(0, 100)));
+        OnlineCoursesAnalyzer analyzer = OnlineCoursesAnalyzer.fromFiles(
+                tempDir.toString(), DuplicatePolicy.KEEP_FIRST, ForkJoinPool.commonPool());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        assertEquals(0, analyzer.refresh());
+
+        Files.writeString(file, "\n" + String.join("\n", lines.subList(100, 150)), StandardOpenOption.APPEND);
+        assertEquals(50, analyzer.refresh());
+        assertSameResults(new OnlineCoursesAnalyzer(write("whole.txt", lines, 1, 150).toString()), analyzer);
+
+        Files.writeString(file, lines.get(150), StandardOpenOption.APPEND);
+        assertThrows(IOException.class, analyzer::refresh);
+        assertSameResults(new OnlineCoursesAnalyzer(write("whole.txt", lines, 1, 150).toString()), analyzer);
+    }
+}
@@ -0,0 +1,32 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CourseProfilesTest {
+
+    @Test
+    void testBatchMatchesSingleCalls() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        int users = 2 * 2 * 60;
+        int[] ages = new int[users];
+        int[] genders = new int[users];
+        int[] degrees = new int[users];
+        for (int i = 0; i < users; i++) {
+            ages[i] = 10 + i / 4;
+            genders[i] = i % 2;
+            degrees[i] = (i / 2) % 2;
+        }
+        List<List<String>> batch = analyzer.recommendCourses(ages, genders, degrees);
+        assertEquals(users, batch.size());
+        for (int i = 0; i < users; i++) {
+            assertEquals(analyzer.recommendCourses(ages[i], genders[i], degrees[i]), batch.get(i));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> analyzer.recommendCourses(new int[2], new int[1], new int[2]));
+    }
+}
@@ -0,0 +1,119 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CourseServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private OnlineCoursesAnalyzer plain;
+    private CourseServer server;
+    private URI base;
+
+    @BeforeEach
+    void start() throws IOException {
+        plain = new OnlineCoursesAnalyzer("resources/local.csv");
+        server = CourseServer.start(new ConcurrentCoursesAnalyzer("resources/local.csv"),
+                new InetSocketAddress("localhost", 0));
+        base = URI.create("http://localhost:" + server.address().getPort());
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(base.resolve(path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String counts(Map<String, Integer> counts) throws IOException {
+        StringWriter text = new StringWriter();
+        new JsonWriter(text).counts(counts);
+        return text.toString();
+    }
+
+    private static String strings(List<String> values) throws IOException {
+        StringWriter text = new StringWriter();
+        new JsonWriter(text).strings(values);
+        return text.toString();
+    }
+
+    @Test
+    void testEndpointsMatchAnalyzer() throws Exception {
+        assertEquals(counts(plain.getPtcpCountByInst()), get("/ptcpCountByInst").body());
+        assertEquals(counts(plain.getPtcpCountByInstAndSubject()),
+                get("/ptcpCountByInstAndSubject").body());
+        assertEquals(strings(plain.getCourses(10, "hours")), get("/courses?topK=10&by=hours").body());
+        assertEquals(strings(plain.searchCourses("computer science", 20, 700)),
+                get("/search?subject=computer%20science&audited=20&hours=700").body());
+        assertEquals(strings(plain.searchCourses("science", 0, 1000, LocalDate.of(2013, 1, 1), null)),
+                get("/search?subject=science&hours=1000&launchedFrom=2013-01-01").body());
+        assertEquals(strings(plain.recommendCourses(25, 1, 1)),
+                get("/recommend?age=25&gender=1&degree=1").body());
+
+        StringWriter text = new StringWriter();
+        JsonWriter json = new JsonWriter(text).beginObject();
+        for (Map.Entry<String, List<List<String>>> entry
+                : new TreeMap<>(plain.getCourseListOfInstructor()).entrySet()) {
+            json.name(entry.getKey()).beginArray();
+            for (List<String> titles : entry.getValue()) {
+                json.strings(titles);
+            }
+            json.endArray();
+        }
+        json.endObject();
+        HttpResponse<String> response = get("/courseListOfInstructor");
+        assertEquals(200, response.statusCode());
+        assertEquals(text.toString(), response.body());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        HttpResponse<String> missing = get("/recommend?age=25&gender=1");
+        assertEquals(400, missing.statusCode());
+        assertEquals("{\"error\":\"missing parameter degree\"}", missing.body());
+        assertEquals(400, get("/courses?topK=ten").statusCode());
+        assertEquals(400, get("/search?launchedTo=05/09/2012").statusCode());
+        assertEquals(404, get("/nothing").statusCode());
+        HttpResponse<String> post = client.send(HttpRequest.newBuilder(base.resolve("/courses"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, post.statusCode());
+    }
+
+    @Test
+    void testJsonEscaping() throws IOException {
+        StringWriter text = new StringWriter();
+        new JsonWriter(text).beginObject().name("a\"b").value("c\\d\ne\u0001")
+                .name("n").value(Double.NaN).name("x").value(1.5).endObject();
+        assertEquals("{\"a\\\"b\":\"c\\\\d\\ne\\u0001\",\"n\":null,\"x\":1.5}", text.toString());
+    }
+
+    @Test
+    void testLoadTestClient() throws InterruptedException {
+        LoadTestClient.Report report = LoadTestClient.run(base, LoadTestClient.DEFAULT_PATHS, 4,
+                Duration.ofMillis(300));
+        assertTrue(report.requests() > 0);
+        assertEquals(0, report.errors());
+        assertTrue(report.throughput() > 0);
+        assertTrue(report.latency(0.99).compareTo(report.latency(0.5)) >= 0);
+    }
+}
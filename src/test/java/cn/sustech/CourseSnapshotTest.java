@@ -0,0 +1,84 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CourseSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void assertSameResults(OnlineCoursesAnalyzer expected, OnlineCoursesAnalyzer actual) {
+        assertEquals(List.copyOf(expected.getPtcpCountByInst().entrySet()),
+                List.copyOf(actual.getPtcpCountByInst().entrySet()));
+        assertEquals(List.copyOf(expected.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(actual.getPtcpCountByInstAndSubject().entrySet()));
+        assertEquals(expected.getCourseListOfInstructor(), actual.getCourseListOfInstructor());
+        assertEquals(expected.getCourses(10, "hours"), actual.getCourses(10, "hours"));
+        assertEquals(expected.searchCourses("science", 25.0, 400), actual.searchCourses("science", 25.0, 400));
+        assertEquals(expected.recommendCourses(30, 0, 1), actual.recommendCourses(30, 0, 1));
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        OnlineCoursesAnalyzer csv = new OnlineCoursesAnalyzer("resources/local.csv");
+        Path snapshot = tempDir.resolve("local.snapshot");
+        csv.writeSnapshot(snapshot);
+        assertSameResults(csv, OnlineCoursesAnalyzer.fromSnapshot(snapshot));
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejected() throws IOException {
+        Path snapshot = tempDir.resolve("local.snapshot");
+        new OnlineCoursesAnalyzer("resources/local.csv").writeSnapshot(snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+        assertThrows(IOException.class, () -> OnlineCoursesAnalyzer.fromSnapshot(snapshot));
+    }
+
+    @Test
+    void testStaleSnapshotFallsBackToCsv() throws IOException {
+        Path csvPath = tempDir.resolve("courses.csv");
+        Files.copy(Paths.get("resources", "local.csv"), csvPath);
+        Path snapshot = tempDir.resolve("courses.snapshot");
+        OnlineCoursesAnalyzer first = OnlineCoursesAnalyzer.fromSnapshot(snapshot, csvPath);
+        assertTrue(Files.exists(snapshot));
+
+        List<String> lines = Files.readAllLines(csvPath);
+        Files.write(csvPath, lines.subList(0, 100));
+        Files.setLastModifiedTime(csvPath, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        OnlineCoursesAnalyzer reloaded = OnlineCoursesAnalyzer.fromSnapshot(snapshot, csvPath);
+        assertNotEquals(first.getPtcpCountByInst(), reloaded.getPtcpCountByInst());
+        assertSameResults(new OnlineCoursesAnalyzer(csvPath.toString()), reloaded);
+        assertSameResults(reloaded, OnlineCoursesAnalyzer.fromSnapshot(snapshot));
+    }
+
+    @Test
+    void testSnapshotOfAppendedRowsIsNotTakenForTheCsv() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"));
+        Path csvPath = tempDir.resolve("courses.csv");
+        Files.write(csvPath, lines.subList(0, 100));
+        Path more = tempDir.resolve("more.csv");
+        Files.write(more, lines.subList(0, 1));
+        Files.write(more, lines.subList(100, 200), StandardOpenOption.APPEND);
+        Path snapshot = tempDir.resolve("courses.snapshot");
+
+        OnlineCoursesAnalyzer appended = OnlineCoursesAnalyzer.fromSnapshot(snapshot, csvPath);
+        appended.append(more.toString());
+        appended.writeSnapshot(snapshot);
+        OnlineCoursesAnalyzer reloaded = OnlineCoursesAnalyzer.fromSnapshot(snapshot, csvPath);
+        assertSameResults(new OnlineCoursesAnalyzer(csvPath.toString()), reloaded);
+        assertSameResults(reloaded, OnlineCoursesAnalyzer.fromSnapshot(snapshot));
+    }
+}
@@ -0,0 +1,72 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvTokenizerTest {
+
+    private static CsvTokenizer tokenizer(String csv) {
+        return new CsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testQuotedFields() throws IOException {
+        CsvTokenizer csv = tokenizer("a,\"b,c\",\"say \"\"hi\"\"\"\r\n\"multi\nline\",x,\"\"\n");
+        assertTrue(csv.next());
+        assertEquals(3, csv.fieldCount());
+        assertEquals("a", csv.text(0));
+        assertEquals("b,c", csv.text(1));
+        assertEquals("say \"hi\"", csv.text(2));
+        assertTrue(csv.next());
+        assertEquals("multi\nline", csv.text(0));
+        assertEquals("x", csv.text(1));
+        assertEquals("", csv.text(2));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    void testNumbers() throws IOException {
+        CsvTokenizer csv = tokenizer("36105,-12,15.04,0.05,418.94,1.5E3,12345678901234567\n\n7");
+        assertTrue(csv.next());
+        assertEquals(36105, csv.parseInt(0));
+        assertEquals(-12, csv.parseInt(1));
+        assertEquals(15.04, csv.parseDouble(2));
+        assertEquals(0.05, csv.parseDouble(3));
+        assertEquals(418.94, csv.parseDouble(4));
+        assertEquals(1500.0, csv.parseDouble(5));
+        assertEquals(12345678901234567.0, csv.parseDouble(6));
+        assertThrows(NumberFormatException.class, () -> csv.parseInt(2));
+        assertTrue(csv.next());
+        assertEquals(7, csv.parseInt(0));
+        assertFalse(csv.next());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void testDatesMatchLegacyParse() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (LocalDate date = LocalDate.of(1999, 12, 1); date.isBefore(LocalDate.of(2017, 3, 1));
+                date = date.plusDays(5)) {
+            sb.append(String.format("%02d/%02d/%d%n", date.getMonthValue(), date.getDayOfMonth(), date.getYear()));
+        }
+        sb.append("2/29/2016\n1/1/1970\n\"12/31/1969\"\n13/01/2013\n02/30/2013\n2013/01/02\n\"Jan 5, 2014\"\n");
+        CsvTokenizer csv = tokenizer(sb.toString());
+        int rows = 0;
+        while (csv.next()) {
+            long legacy = new Date(csv.text(0)).toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+            assertEquals(legacy, csv.parseDate(0), csv.text(0));
+            rows++;
+        }
+        assertTrue(rows > 1000);
+        assertEquals(LocalDate.of(1600, 2, 29).toEpochDay(), CsvTokenizer.epochDay(1600, 2, 29));
+        assertEquals(LocalDate.of(-400, 3, 1).toEpochDay(), CsvTokenizer.epochDay(-400, 3, 1));
+    }
+}
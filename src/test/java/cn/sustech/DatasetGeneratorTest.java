@@ -0,0 +1,70 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] csv(long seed, long rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DatasetGenerator(seed).writeCsv(rows, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testDeterministic() throws IOException {
+        assertArrayEquals(csv(7, 5000), csv(7, 5000));
+        assertFalse(java.util.Arrays.equals(csv(7, 5000), csv(8, 5000)));
+    }
+
+    @Test
+    void testLayout() throws IOException {
+        int rows = 0;
+        boolean threeInstructors = false;
+        try (CsvTokenizer csv = new CsvTokenizer(new ByteArrayInputStream(csv(11, 20_000)))) {
+            csv.next();
+            assertEquals(DatasetGenerator.HEADER, String.join(",", List.of(csv.text(0), csv.text(1), csv.text(2),
+                    csv.text(3), csv.text(4), csv.text(5), csv.text(6), csv.text(7), csv.text(8), csv.text(9),
+                    csv.text(10), csv.text(11), csv.text(12), csv.text(13), csv.text(14), csv.text(15),
+                    csv.text(16), csv.text(17), csv.text(18), csv.text(19), csv.text(20), csv.text(21),
+                    csv.text(22))));
+            while (csv.next()) {
+                assertEquals(23, csv.fieldCount());
+                threeInstructors |= csv.text(4).contains(", and ");
+                rows++;
+            }
+        }
+        assertEquals(20_000, rows);
+        assertTrue(threeInstructors);
+    }
+
+    @Test
+    void testSnapshotMatchesCsv() throws IOException {
+        Path csv = tempDir.resolve("generated.csv");
+        Path snapshot = tempDir.resolve("generated.snapshot");
+        DatasetGenerator generator = new DatasetGenerator(42);
+        generator.writeCsv(70_000, csv);
+        generator.writeSnapshot(70_000, snapshot);
+        OnlineCoursesAnalyzer expected = new OnlineCoursesAnalyzer(csv.toString());
+        OnlineCoursesAnalyzer actual = OnlineCoursesAnalyzer.fromSnapshot(snapshot);
+        assertEquals(List.copyOf(expected.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(actual.getPtcpCountByInstAndSubject().entrySet()));
+        assertEquals(expected.getCourseListOfInstructor(), actual.getCourseListOfInstructor());
+        assertEquals(expected.getCourses(20, "hours"), actual.getCourses(20, "hours"));
+        assertEquals(expected.searchCourses("science", 10.0, 500), actual.searchCourses("science", 10.0, 500));
+        assertEquals(expected.recommendCourses(30, 0, 1), actual.recommendCourses(30, 0, 1));
+        assertTrue(Files.size(snapshot) > 0);
+    }
+}
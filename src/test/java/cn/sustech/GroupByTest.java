@@ -0,0 +1,113 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static cn.sustech.CourseColumn.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupByTest {
+
+    private static CourseTable table(int rows) throws IOException {
+        Random random = new Random(17);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            sb.append("Inst").append(random.nextInt(7)).append(",C").append(i % 500)
+                    .append(",09/05/2012,Title,Bob,Subject").append(random.nextInt(40)).append(',')
+                    .append(2012 + random.nextInt(5)).append(",1,").append(random.nextInt(100000))
+                    .append(",10,").append(random.nextInt(50) - 10).append(",1,1,1,1,1,1,")
+                    .append(random.nextInt(1000) / 10.0).append(',').append(random.nextInt(300) / 7.0)
+                    .append(",1,1,1,1\n");
+        }
+        CourseTable table = new CourseTable();
+        try (CsvTokenizer csv = new CsvTokenizer(
+                new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)))) {
+            while (csv.next()) {
+                table.add(csv);
+            }
+        }
+        return table;
+    }
+
+    /** Groups by (year, subject, institution) the slow way, in order of first row. */
+    private static Map<List<Object>, double[]> naive(CourseTable table) {
+        Map<List<Object>, double[]> groups = new LinkedHashMap<>();
+        for (int row = 0; row < table.size(); row++) {
+            List<Object> key = List.of(table.ints(YEAR)[row], table.text(COURSE_SUBJECTS, row),
+                    table.text(INSTITUTION, row));
+            double[] acc = groups.computeIfAbsent(key, k -> new double[] {0, 0, 0,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY});
+            acc[0]++;
+            acc[1] += table.ints(CERTIFIED)[row];
+            acc[2] += table.doubles(MEDIAN_HOURS)[row];
+            acc[3] = Math.min(acc[3], table.ints(CERTIFIED)[row]);
+            acc[4] = Math.max(acc[4], table.doubles(TOTAL_COURSE_HOURS)[row]);
+        }
+        return groups;
+    }
+
+    private static Map<List<Object>, double[]> collect(GroupBy.Groups groups) {
+        Map<List<Object>, double[]> result = new LinkedHashMap<>();
+        for (int g = 0; g < groups.size(); g++) {
+            double count = groups.longValue(0, g);
+            result.put(List.of(groups.code(0, g), groups.text(1, g), groups.text(2, g)),
+                    new double[] {count, groups.longValue(1, g), groups.value(2, g) * count,
+                        groups.longValue(3, g), groups.value(4, g)});
+            assertEquals(count, groups.count(g));
+        }
+        return result;
+    }
+
+    @Test
+    void testMatchesNaiveGrouping() throws IOException {
+        CourseTable table = table(140_000);
+        GroupBy spec = GroupBy.by(YEAR, COURSE_SUBJECTS, INSTITUTION).count().sum(CERTIFIED)
+                .avg(MEDIAN_HOURS).min(CERTIFIED).max(TOTAL_COURSE_HOURS);
+        Map<List<Object>, double[]> expected = naive(table);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (GroupBy.Groups groups : List.of(spec.run(table),
+                    spec.run(table, 0, table.size(), pool))) {
+                Map<List<Object>, double[]> actual = collect(groups);
+                assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+                for (Map.Entry<List<Object>, double[]> entry : expected.entrySet()) {
+                    assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), 1e-6,
+                            entry.getKey()::toString);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testSingleKeyAndRange() throws IOException {
+        CourseTable table = table(1000);
+        GroupBy.Groups groups = GroupBy.by(INSTITUTION).sum(PARTICIPANTS).run(table, 100, 200, null);
+        Map<String, Long> expected = new LinkedHashMap<>();
+        for (int row = 100; row < 200; row++) {
+            expected.merge(table.text(INSTITUTION, row), (long) table.ints(PARTICIPANTS)[row], Long::sum);
+        }
+        Map<String, Long> actual = new LinkedHashMap<>();
+        for (int g = 0; g < groups.size(); g++) {
+            actual.put(groups.text(0, g), groups.longValue(0, g));
+        }
+        assertEquals(List.copyOf(expected.entrySet()), List.copyOf(actual.entrySet()));
+    }
+
+    @Test
+    void testRejectsUngroupableColumns() {
+        assertThrows(IllegalArgumentException.class, () -> GroupBy.by());
+        assertThrows(IllegalArgumentException.class, () -> GroupBy.by(MEDIAN_AGE));
+        assertThrows(IllegalArgumentException.class, () -> GroupBy.by(INSTITUTION).sum(COURSE_TITLE));
+    }
+}
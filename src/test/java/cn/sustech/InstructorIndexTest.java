@@ -0,0 +1,40 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstructorIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String row(String number, String title, String instructors) {
+        return "MITx," + number + ",09/05/2012," + title + ",\"" + instructors + "\",Science,"
+                + "1,1,100,10,5,15.04,8.32,54.98,83.2,8.17,28.97,418.94,64.45,26,88.28,11.72,60.68\n";
+    }
+
+    @Test
+    void testNamesMatchExactly() throws IOException {
+        Path csv = tempDir.resolve("instructors.csv");
+        Files.writeString(csv, "header\n"
+                + row("1", "Alone", "Bob")
+                + row("2", "Pair", "Alice, Bobby")
+                + row("3", "Trio", "Alice, Bob, and Carol")
+                + row("4", "Alone", "Bob"));
+        Map<String, List<List<String>>> result =
+                new OnlineCoursesAnalyzer(csv.toString()).getCourseListOfInstructor();
+        assertEquals(List.of(List.of("Alone"), List.of("Trio")), result.get("Bob"));
+        assertEquals(List.of(List.of(), List.of("Pair")), result.get("Bobby"));
+        assertEquals(List.of(List.of(), List.of("Pair", "Trio")), result.get("Alice"));
+        assertEquals(List.of(List.of(), List.of("Trio")), result.get("Carol"));
+        assertEquals(4, result.size());
+    }
+}
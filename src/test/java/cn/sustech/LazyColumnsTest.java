@@ -0,0 +1,100 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyColumnsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static CourseTable eager(Path path) throws IOException {
+        CourseTable table = new CourseTable();
+        try (CsvTokenizer csv = new CsvTokenizer(new FileInputStream(path.toFile()))) {
+            csv.next();
+            while (csv.next()) {
+                table.add(csv);
+            }
+        }
+        return table;
+    }
+
+    private static void assertSameColumns(CourseTable expected, CourseTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (CourseColumn column : CourseColumn.values()) {
+            for (int row = 0; row < expected.size(); row++) {
+                switch (column.type()) {
+                    case TEXT -> assertEquals(expected.text(column, row), actual.text(column, row));
+                    case INT, DATE -> assertEquals(expected.ints(column)[row], actual.ints(column)[row]);
+                    default -> assertEquals(expected.doubles(column)[row], actual.doubles(column)[row]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testParsesColumnsOnDemand() throws IOException {
+        Path local = Path.of("resources", "local.csv");
+        CourseTable lazy = new CourseTable(LazyColumns.scan(local));
+        for (CourseColumn column : CourseColumn.values()) {
+            assertFalse(lazy.isMaterialized(column));
+        }
+        lazy.ints(CourseColumn.PARTICIPANTS);
+        assertTrue(lazy.isMaterialized(CourseColumn.PARTICIPANTS));
+        assertFalse(lazy.isMaterialized(CourseColumn.COURSE_TITLE));
+        assertFalse(lazy.isMaterialized(CourseColumn.LAUNCH_DATE));
+        assertSameColumns(eager(local), lazy);
+    }
+
+    @Test
+    void testQuotedFields() throws IOException {
+        String rest = ",2012,1,10,5,3,1.5,2,3,4,5,6,7,8,9,10,11,12\r\n";
+        Path csv = tempDir.resolve("quoted.csv");
+        Files.writeString(csv, DatasetGenerator.HEADER + "\n"
+                + "MITx,\"6.00x\",09/26/2012,\"Say \"\"hi\"\", world\",\"A, B\",\"Line\none\"" + rest
+                + "HarvardX,,10/01/2013,,\"\",Art,2013,0,-4,0,0,0.0,1e2,3,4,5,6,7,8,9,10,11,\"12.5\""
+                + ",extra,fields\n"
+                + "MITx,C,09/26/2012,T,I,S" + rest.trim(), StandardCharsets.UTF_8);
+        CourseTable lazy = new CourseTable(LazyColumns.scan(csv));
+        assertEquals("Say \"hi\", world", lazy.text(CourseColumn.COURSE_TITLE, 0));
+        assertEquals("Line\none", lazy.text(CourseColumn.COURSE_SUBJECTS, 0));
+        assertEquals(12.5, lazy.doubles(CourseColumn.BACHELORS_RATE)[1]);
+        assertEquals(12, lazy.doubles(CourseColumn.BACHELORS_RATE)[2]);
+        assertSameColumns(eager(csv), lazy);
+    }
+
+    @Test
+    void testLazyAnalyzerMatchesEager() throws IOException {
+        OnlineCoursesAnalyzer eager = new OnlineCoursesAnalyzer("resources/local.csv");
+        OnlineCoursesAnalyzer lazy = OnlineCoursesAnalyzer.lazy("resources/local.csv");
+        assertEquals(eager.getCourses(10, "hours"), lazy.getCourses(10, "hours"));
+        assertEquals(List.copyOf(eager.getPtcpCountByInst().entrySet()),
+                List.copyOf(lazy.getPtcpCountByInst().entrySet()));
+        assertEquals(List.copyOf(eager.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(lazy.getPtcpCountByInstAndSubject().entrySet()));
+        assertEquals(eager.getCourseListOfInstructor(), lazy.getCourseListOfInstructor());
+        assertEquals(eager.searchCourses("science", 25.0, 400), lazy.searchCourses("science", 25.0, 400));
+        assertEquals(eager.recommendCourses(30, 0, 1), lazy.recommendCourses(30, 0, 1));
+
+        Path snapshot = tempDir.resolve("lazy.snapshot");
+        OnlineCoursesAnalyzer.lazy("resources/local.csv").writeSnapshot(snapshot);
+        assertEquals(eager.recommendCourses(25, 1, 1),
+                OnlineCoursesAnalyzer.fromSnapshot(snapshot).recommendCourses(25, 1, 1));
+
+        OnlineCoursesAnalyzer appended = OnlineCoursesAnalyzer.lazy("resources/local.csv");
+        appended.getPtcpCountByInst();
+        Path header = tempDir.resolve("header.csv");
+        Files.writeString(header, DatasetGenerator.HEADER + "\n");
+        assertEquals(0, appended.append(header.toString()));
+        assertEquals(eager.getCourses(20, "participants"), appended.getCourses(20, "participants"));
+    }
+}
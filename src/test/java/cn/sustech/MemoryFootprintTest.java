@@ -0,0 +1,88 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryFootprintTest {
+
+    @Test
+    void testFootprintByColumnAndIndex() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        MemoryFootprint before = analyzer.memoryFootprint();
+        assertEquals(CourseColumn.values().length, before.getColumns().size());
+        before.getColumns().values().forEach(bytes -> assertTrue(bytes > 0));
+        assertTrue(before.getColumns().get("COURSE_TITLE") > before.getColumns().get("YEAR"));
+        assertEquals(0, before.getIndexes().get("searchIndex"));
+        assertEquals(0, before.getIndexes().get("unparsedRows"));
+
+        analyzer.searchCourses("science", 10, 700);
+        analyzer.getCourseListOfInstructor();
+        analyzer.recommendCourses(25, 1, 1);
+        MemoryFootprint after = analyzer.memoryFootprint();
+        after.getIndexes().forEach((name, bytes) -> {
+            if (!name.equals("unparsedRows")) {
+                assertTrue(bytes > 0, name);
+            }
+        });
+        long sum = 0;
+        for (Map<String, Long> part : List.of(after.getColumns(), after.getIndexes())) {
+            for (long bytes : part.values()) {
+                sum += bytes;
+            }
+        }
+        assertEquals(sum, after.getTotal());
+        assertTrue(after.getTotal() > before.getTotal());
+        assertTrue(after.toString().contains("index searchIndex="));
+    }
+
+    @Test
+    void testLazyColumnsRetainNothingUntilParsed() throws IOException {
+        OnlineCoursesAnalyzer analyzer = OnlineCoursesAnalyzer.lazy("resources/local.csv");
+        MemoryFootprint footprint = analyzer.memoryFootprint();
+        assertEquals(0, footprint.getColumns().get("COURSE_TITLE"));
+        assertTrue(footprint.getIndexes().get("unparsedRows") > 0);
+        analyzer.getCourses(10, "hours");
+        assertTrue(analyzer.memoryFootprint().getColumns().get("COURSE_TITLE") > 0);
+        assertEquals(0, analyzer.memoryFootprint().getColumns().get("BACHELORS_RATE"));
+    }
+
+    @Test
+    void testFieldsAreInternedByBytes() throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        byte[] a = "x,MITx,\"Harvard\"\"X\",MITx".getBytes(StandardCharsets.UTF_8);
+        int mit = dictionary.encode(a, 2, 6, false);
+        assertEquals(mit, dictionary.encode(a, 20, 24, false));
+        assertEquals(mit, dictionary.encode("MITx"));
+        int harvard = dictionary.encode(a, 8, 18, true);
+        assertEquals("Harvard\"X", dictionary.value(harvard));
+        assertEquals(harvard, dictionary.encode("Harvard\"X"));
+        for (int i = 0; i < 1000; i++) {
+            byte[] value = ("v" + i).getBytes(StandardCharsets.UTF_8);
+            assertEquals(dictionary.encode("v" + i), dictionary.encode(value, 0, value.length, false));
+        }
+        dictionary.trimToSize();
+        assertEquals(mit, dictionary.encode(a, 2, 6, false));
+        assertEquals(1002, dictionary.size());
+
+        CourseTable table = new CourseTable();
+        try (CsvTokenizer csv = new CsvTokenizer(new FileInputStream("resources/local.csv"))) {
+            csv.next();
+            while (csv.next()) {
+                table.add(csv);
+            }
+        }
+        int[] institution = table.ints(CourseColumn.INSTITUTION);
+        for (int row = 1; row < table.size(); row++) {
+            if (institution[row] == institution[0]) {
+                assertSame(table.text(CourseColumn.INSTITUTION, 0), table.text(CourseColumn.INSTITUTION, row));
+            }
+        }
+    }
+}
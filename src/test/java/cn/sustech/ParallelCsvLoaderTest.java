@@ -0,0 +1,72 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCsvLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> record(CsvTokenizer csv) {
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < csv.fieldCount(); i++) {
+            fields.add(csv.text(i));
+        }
+        return fields;
+    }
+
+    @Test
+    void testChunksMatchSequentialParse() throws IOException {
+        String local = Files.readString(Paths.get("resources", "local.csv"), StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(local.strip()).append('\n');
+        for (int i = 0; i < 50; i++) {
+            sb.append("HarvardX,X").append(i).append(",01/01/2015,\"Quoted, with\nnew \"\"line\"\"\",")
+                    .append("\"Jane Doe, and John Roe\",Math,1,1,10,5,1,50,10,20,30,4,40,10.5,5,30,50,50,70\r\n");
+        }
+        Path csv = tempDir.resolve("chunks.csv");
+        Files.writeString(csv, sb, StandardCharsets.UTF_8);
+
+        List<List<String>> expected = new ArrayList<>();
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new FileInputStream(csv.toFile()))) {
+            tokenizer.next();
+            while (tokenizer.next()) {
+                expected.add(record(tokenizer));
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<List<String>> actual = new ArrayList<>();
+            ParallelCsvLoader.load(csv, pool, ArrayList<List<String>>::new,
+                    (chunk, tokenizer) -> chunk.add(record(tokenizer)), 1024)
+                    .forEach(actual::addAll);
+            assertEquals(338, expected.size());
+            assertEquals(expected, actual);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testParallelAnalyzerMatchesSequential() throws IOException {
+        String path = Paths.get("resources", "local.csv").toString();
+        OnlineCoursesAnalyzer sequential = new OnlineCoursesAnalyzer(path);
+        OnlineCoursesAnalyzer parallel = new OnlineCoursesAnalyzer(path, ForkJoinPool.commonPool());
+        assertEquals(List.copyOf(sequential.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(parallel.getPtcpCountByInstAndSubject().entrySet()));
+        assertEquals(sequential.getCourseListOfInstructor(), parallel.getCourseListOfInstructor());
+        assertEquals(sequential.recommendCourses(25, 1, 1), parallel.recommendCourses(25, 1, 1));
+    }
+}
@@ -0,0 +1,71 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelQueriesTest {
+
+    @Test
+    void testParallelMatchesSequential() throws IOException {
+        OnlineCoursesAnalyzer sequential = new OnlineCoursesAnalyzer("resources/local.csv");
+        OnlineCoursesAnalyzer parallel = new OnlineCoursesAnalyzer("resources/local.csv");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel.setQueryPool(pool, 3);
+            for (CourseMetric metric : CourseMetric.values()) {
+                for (int k : new int[] {0, 1, 10, 1000}) {
+                    assertEquals(sequential.getCourses(k, metric), parallel.getCourses(k, metric));
+                }
+            }
+            for (String subject : List.of("", "science", "computer", "a", "history")) {
+                for (double audited : new double[] {0, 10, 30}) {
+                    assertEquals(sequential.searchCourses(subject, audited, 700),
+                            parallel.searchCourses(subject, audited, 700));
+                    assertEquals(sequential.searchCourses(subject, audited, Double.MAX_VALUE,
+                                    LocalDate.of(2014, 1, 1), LocalDate.of(2015, 6, 30)),
+                            parallel.searchCourses(subject, audited, Double.MAX_VALUE,
+                                    LocalDate.of(2014, 1, 1), LocalDate.of(2015, 6, 30)));
+                }
+            }
+            int[] ages = new int[120];
+            int[] genders = new int[120];
+            int[] degrees = new int[120];
+            for (int i = 0; i < ages.length; i++) {
+                ages[i] = 10 + i / 2;
+                genders[i] = i % 2;
+                degrees[i] = (i / 3) % 2;
+                assertEquals(sequential.recommendCourses(ages[i], genders[i], degrees[i]),
+                        parallel.recommendCourses(ages[i], genders[i], degrees[i]));
+            }
+            assertEquals(sequential.recommendCourses(ages, genders, degrees),
+                    parallel.recommendCourses(ages, genders, degrees));
+        } finally {
+            pool.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> parallel.setQueryPool(pool, 0));
+    }
+
+    @Test
+    void testSingleRowPartitions() throws IOException {
+        OnlineCoursesAnalyzer sequential = new OnlineCoursesAnalyzer("resources/local.csv");
+        OnlineCoursesAnalyzer parallel = new OnlineCoursesAnalyzer("resources/local.csv");
+        parallel.setQueryPool(ForkJoinPool.commonPool(), 1);
+        for (int age = 10; age < 70; age += 7) {
+            assertEquals(sequential.recommendCourses(age, 1, 1), parallel.recommendCourses(age, 1, 1));
+            assertEquals(sequential.recommendCourses(age, 0, 0), parallel.recommendCourses(age, 0, 0));
+        }
+        assertEquals(sequential.getCourses(20, CourseMetric.HOURS), parallel.getCourses(20, CourseMetric.HOURS));
+        assertEquals(sequential.searchCourses("science", 10, 700), parallel.searchCourses("science", 10, 700));
+        int[] ages = {20, 30, 40};
+        int[] genders = {0, 1, 0};
+        int[] degrees = {1, 1, 0};
+        assertEquals(sequential.recommendCourses(ages, genders, degrees),
+                parallel.recommendCourses(ages, genders, degrees));
+    }
+}
@@ -0,0 +1,122 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        QueryCache cache = QueryCache.ofEntries(2);
+        AtomicInteger computed = new AtomicInteger();
+        for (String key : List.of("a", "b", "a", "c", "a", "b")) {
+            cache.get(0, List.of(key), () -> {
+                computed.incrementAndGet();
+                return new ArrayList<>(List.of(key));
+            });
+        }
+        // a, b computed; a hit; c evicts b; a hit; b evicts c
+        assertEquals(4, computed.get());
+        assertEquals(2, cache.hits());
+        assertEquals(4, cache.misses());
+        assertEquals(2, cache.evictions());
+        assertEquals(2, cache.size());
+        assertThrows(UnsupportedOperationException.class, () -> cache.get(0, List.of("a"), List::of).add("x"));
+    }
+
+    @Test
+    void testWeightBound() {
+        QueryCache cache = QueryCache.ofBytes(1000);
+        for (int i = 0; i < 100; i++) {
+            cache.get(0, List.of(i), () -> List.of("some course title"));
+        }
+        assertTrue(cache.evictions() > 0);
+        assertTrue(cache.size() < 100);
+        List<String> huge = List.of("x".repeat(2000));
+        assertEquals(huge, cache.get(0, List.of("huge"), () -> huge));
+        assertEquals(huge, cache.get(0, List.of("huge"), () -> huge));
+        // heavier than the whole bound, so never cached
+        assertEquals(2, cache.misses() - 100);
+    }
+
+    @Test
+    void testNewVersionInvalidates() {
+        QueryCache cache = QueryCache.ofEntries(10);
+        assertEquals(List.of("v1"), cache.get(1, List.of("q"), () -> List.of("v1")));
+        assertEquals(List.of("v1"), cache.get(1, List.of("q"), () -> List.of("other")));
+        assertEquals(List.of("v2"), cache.get(2, List.of("q"), () -> List.of("v2")));
+        // a lookup on older data is answered from that data and not cached
+        assertEquals(List.of("v1"), cache.get(1, List.of("q"), () -> List.of("v1")));
+        assertEquals(List.of("v2"), cache.get(2, List.of("q"), () -> List.of("other")));
+        assertEquals(0, cache.evictions());
+    }
+
+    @Test
+    void testAnalyzerCacheIsInvalidatedByAppend() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get("resources", "local.csv"));
+        Path first = tempDir.resolve("first.csv");
+        Path second = tempDir.resolve("second.csv");
+        Files.write(first, lines.subList(0, 100));
+        List<String> rest = new ArrayList<>(lines.subList(100, lines.size()));
+        rest.add(0, lines.get(0));
+        Files.write(second, rest);
+
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(first.toString());
+        QueryCache cache = QueryCache.ofEntries(100);
+        analyzer.setQueryCache(cache);
+        List<String> before = analyzer.getCourses(10, "participants");
+        assertSame(before, analyzer.getCourses(10, "participants"));
+        assertEquals(1, cache.hits());
+        analyzer.append(second.toString());
+        assertEquals(new OnlineCoursesAnalyzer("resources/local.csv").getCourses(10, "participants"),
+                analyzer.getCourses(10, "participants"));
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void testReadersRacingInvalidateSeeNewVersionOnly() throws InterruptedException {
+        int keys = 1 << 17;
+        QueryCache cache = QueryCache.ofEntries(keys);
+        for (int round = 1; round <= 5; round++) {
+            long old = round;
+            for (int i = 0; i < keys; i++) {
+                cache.get(old, List.of(i), () -> List.of(Long.toString(old)));
+            }
+            long current = round + 1;
+            List<String> expected = List.of(Long.toString(current));
+            AtomicInteger stale = new AtomicInteger();
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int offset = t * (keys / 4);
+                Thread reader = new Thread(() -> {
+                    // the first lookup of each reader may be the one that invalidates
+                    for (int i = 0; i < keys; i++) {
+                        int key = (keys - 1 - i + offset) % keys;
+                        if (!expected.equals(cache.get(current, List.of(key), () -> expected))) {
+                            stale.incrementAndGet();
+                        }
+                    }
+                });
+                readers.add(reader);
+                reader.start();
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertEquals(0, stale.get());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchIndexTest {
+
+    private static final String[] SUBJECTS = {"Computer Science", "Science, Technology, Engineering, and Mathematics",
+            "Humanities, History, Design, Religion, and Education", "Government, Health, and Social Science", "Ai"};
+
+    private static CourseTable table(int rows) throws IOException {
+        Random random = new Random(210);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            sb.append("MITx,C").append(i).append(',').append(1 + random.nextInt(12)).append('/')
+                    .append(1 + random.nextInt(28)).append('/').append(2012 + random.nextInt(4)).append(",Title ").append(random.nextInt(400))
+                    .append(",Bob,\"").append(SUBJECTS[random.nextInt(SUBJECTS.length)]).append("\",1,1,10,10,10,")
+                    .append(random.nextInt(5) == 0 ? "0.0" : random.nextInt(10000) / 100.0).append(",1,1,1,1,1,")
+                    .append(random.nextInt(5000) / 10.0).append(",1,1,1,1,1,1\n");
+        }
+        CourseTable table = new CourseTable();
+        try (CsvTokenizer csv = new CsvTokenizer(
+                new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)))) {
+            while (csv.next()) {
+                table.add(csv);
+            }
+        }
+        return table;
+    }
+
+    private static List<String> scan(CourseTable table, String query, double audited, double hours,
+                int from, int to) {
+        return IntStream.range(0, table.size())
+                .filter(row -> table.text(CourseColumn.COURSE_SUBJECTS, row).toLowerCase().contains(query.toLowerCase())
+                        && table.doubles(CourseColumn.AUDITED_RATE)[row] >= audited
+                        && table.doubles(CourseColumn.TOTAL_COURSE_HOURS)[row] <= hours
+                        && table.ints(CourseColumn.LAUNCH_DATE)[row] >= from
+                        && table.ints(CourseColumn.LAUNCH_DATE)[row] <= to)
+                .mapToObj(row -> table.text(CourseColumn.COURSE_TITLE, row))
+                .distinct().sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    void testMatchesScan() throws IOException {
+        CourseTable table = table(20_000);
+        SearchIndex index = SearchIndex.build(table);
+        for (String query : List.of("", "a", "AI", "sci", "SCIENCE", "ence, t", "history", "quantum")) {
+            for (double audited : new double[] {-0.0, 0.0, 0.005, 50.0, 99.5, 100.0, Double.NaN}) {
+                for (double hours : new double[] {-1.0, 0.0, 0.05, 120.3, 499.9, Double.POSITIVE_INFINITY}) {
+                    assertEquals(scan(table, query, audited, hours, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                            index.search(table, query, audited, hours, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                            query + " " + audited + " " + hours);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLaunchDateRanges() throws IOException {
+        CourseTable table = table(20_000);
+        SearchIndex index = SearchIndex.build(table);
+        int[][] ranges = {{Integer.MIN_VALUE, Integer.MAX_VALUE}, {day(2013, 1, 1), day(2013, 12, 31)},
+            {day(2014, 3, 5), day(2014, 3, 5)}, {day(2015, 6, 1), Integer.MAX_VALUE},
+            {Integer.MIN_VALUE, day(2012, 1, 31)}, {day(2013, 1, 1), day(2012, 1, 1)}, {0, day(2011, 1, 1)}};
+        for (String query : List.of("", "sci", "history")) {
+            for (double audited : new double[] {0.0, 50.0}) {
+                for (double hours : new double[] {120.3, Double.POSITIVE_INFINITY}) {
+                    for (int[] range : ranges) {
+                        assertEquals(scan(table, query, audited, hours, range[0], range[1]),
+                                index.search(table, query, audited, hours, range[0], range[1]),
+                                query + " " + audited + " " + hours + " " + range[0] + ".." + range[1]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testAnalyzerDateRange() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        assertEquals(analyzer.searchCourses("science", 10, 500),
+                analyzer.searchCourses("science", 10, 500, null, null));
+        List<String> in2013 = analyzer.searchCourses("", 0, Double.POSITIVE_INFINITY,
+                LocalDate.of(2013, 1, 1), LocalDate.of(2013, 12, 31));
+        assertFalse(in2013.isEmpty());
+        assertTrue(analyzer.searchCourses("", 0, Double.POSITIVE_INFINITY, null, null).containsAll(in2013));
+        assertEquals(List.of(), analyzer.searchCourses("", 0, Double.POSITIVE_INFINITY,
+                LocalDate.of(2030, 1, 1), null));
+    }
+
+    private static int day(int year, int month, int day) {
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+}
@@ -0,0 +1,103 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingResultsTest {
+
+    @Test
+    void testStreamsMatchMaps() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        Map<String, Integer> byInst = new LinkedHashMap<>();
+        analyzer.forEachPtcpCountByInst(byInst::put);
+        assertEquals(List.copyOf(analyzer.getPtcpCountByInst().entrySet()), List.copyOf(byInst.entrySet()));
+
+        Map<String, Integer> byInstAndSubject = new LinkedHashMap<>();
+        analyzer.forEachPtcpCountByInstAndSubject(byInstAndSubject::put);
+        assertEquals(List.copyOf(analyzer.getPtcpCountByInstAndSubject().entrySet()),
+                List.copyOf(byInstAndSubject.entrySet()));
+
+        Map<String, List<List<String>>> byInstructor = new LinkedHashMap<>();
+        analyzer.forEachCourseListOfInstructor((instructor, solo, coDeveloped) ->
+                byInstructor.put(instructor, List.of(new ArrayList<>(solo), new ArrayList<>(coDeveloped))));
+        assertEquals(analyzer.getCourseListOfInstructor(), byInstructor);
+        assertEquals(new ArrayList<>(new TreeMap<>(byInstructor).keySet()), new ArrayList<>(byInstructor.keySet()));
+    }
+
+    @Test
+    void testJoinedKeysAreSortedAndMergedAsStrings() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        String[][] rows = {{"A", "B-C", "5"}, {"A-B", "C", "7"}, {"A", "B", "5"}, {"AB", "A", "5"},
+            {"A", "Z", "1"}};
+        for (String[] row : rows) {
+            csv.append(row[0]).append(",C1,09/05/2012,T,Bob,").append(row[1]).append(",1,1,")
+                    .append(row[2]).append(",1,1,1,1,1,1,1,1,1,1,1,1,1,1\n");
+        }
+        Path file = Files.createTempFile("joined", ".csv");
+        try {
+            Files.writeString(file, "header\n" + csv);
+            OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer(file.toString());
+            Map<String, Integer> streamed = new LinkedHashMap<>();
+            analyzer.forEachPtcpCountByInstAndSubject(streamed::put);
+            assertEquals(List.copyOf(analyzer.getPtcpCountByInstAndSubject().entrySet()),
+                    List.copyOf(streamed.entrySet()));
+            assertEquals(12, streamed.get("A-B-C"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testWriters() throws IOException {
+        OnlineCoursesAnalyzer analyzer = new OnlineCoursesAnalyzer("resources/local.csv");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        analyzer.writePtcpCountByInstAndSubject(out, ResultFormat.JSON);
+        StringWriter expected = new StringWriter();
+        new JsonWriter(expected).counts(analyzer.getPtcpCountByInstAndSubject());
+        assertEquals(expected.toString(), out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        analyzer.writeCourseListOfInstructor(out, ResultFormat.JSON);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("{\""));
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("]]}"));
+
+        out.reset();
+        analyzer.writePtcpCountByInst(out, ResultFormat.CSV);
+        List<String> lines = List.of(out.toString(StandardCharsets.UTF_8).split("\r\n"));
+        assertEquals("institution,participants", lines.get(0));
+        assertEquals(analyzer.getPtcpCountByInst().size() + 1, lines.size());
+        Map.Entry<String, Integer> first = analyzer.getPtcpCountByInst().entrySet().iterator().next();
+        assertEquals(first.getKey() + "," + first.getValue(), lines.get(1));
+
+        out.reset();
+        analyzer.writeCourseListOfInstructor(out, ResultFormat.CSV);
+        int titles = 0;
+        for (List<List<String>> lists : analyzer.getCourseListOfInstructor().values()) {
+            titles += lists.get(0).size() + lists.get(1).size();
+        }
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("instructor,kind,title\r\n"));
+        assertEquals(titles + 1, text.split("\r\n").length);
+    }
+
+    @Test
+    void testCsvQuoting() throws IOException {
+        StringWriter text = new StringWriter();
+        new CsvWriter(text).field("plain").field("a, b").field("say \"hi\"").field(42).endRecord()
+                .field("line\nbreak").endRecord().flush();
+        assertEquals("plain,\"a, b\",\"say \"\"hi\"\"\",42\r\n\"line\nbreak\"\r\n", text.toString());
+    }
+}
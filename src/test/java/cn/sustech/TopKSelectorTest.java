@@ -0,0 +1,73 @@
+package cn.sustech;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKSelectorTest {
+
+    private static CourseTable table(int rows) throws IOException {
+        Random random = new Random(209);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            sb.append("MITx,C").append(i % 500).append(",09/05/2012,Title ").append(random.nextInt(3000))
+                    .append(",Bob,Science,1,1,").append(random.nextInt(100000)).append(",10,")
+                    .append(random.nextInt(50)).append(",1,1,1,1,1,1,")
+                    .append(random.nextInt(1000) / 10.0).append(",1,1,1,1,1\n");
+        }
+        CourseTable table = new CourseTable();
+        try (CsvTokenizer csv = new CsvTokenizer(
+                new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)))) {
+            while (csv.next()) {
+                table.add(csv);
+            }
+        }
+        return table;
+    }
+
+    private static List<String> sortAll(CourseTable table, CourseColumn column, int k) {
+        Comparator<Integer> order = column.type() == CourseColumn.Type.INT
+                ? Comparator.comparingDouble((Integer row) -> table.ints(column)[row])
+                : Comparator.comparingDouble((Integer row) -> table.doubles(column)[row]);
+        return IntStream.range(0, table.size()).boxed()
+                .sorted(order.reversed().thenComparing(row -> table.text(CourseColumn.COURSE_TITLE, row)))
+                .map(row -> table.text(CourseColumn.COURSE_TITLE, row))
+                .distinct().limit(k).collect(Collectors.toList());
+    }
+
+    @Test
+    void testMatchesFullSort() throws IOException {
+        CourseTable table = table(140_000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (CourseMetric metric : List.of(CourseMetric.PARTICIPANTS, CourseMetric.CERTIFIED,
+                    CourseMetric.MEDIAN_HOURS)) {
+                List<String> all = sortAll(table, metric.column(), 5000);
+                for (int k : new int[] {0, 1, 10, 100, 5000}) {
+                    List<String> expected = all.subList(0, Math.min(k, all.size()));
+                    assertEquals(expected, TopKSelector.select(table, metric.column(), k));
+                    assertEquals(expected, TopKSelector.select(table, metric.column(), k, pool));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCriteria() {
+        assertEquals(CourseMetric.HOURS, CourseMetric.of("hours"));
+        assertEquals(CourseMetric.MEDIAN_HOURS, CourseMetric.of("medianHours"));
+        assertEquals(CourseMetric.PARTICIPANTS, CourseMetric.of("anything else"));
+    }
+}